@@ -0,0 +1,90 @@
+package mjw.java.concurrency.benchmark.jmh;
+
+import mjw.java.concurrency.benchmark.ExecutorServiceCalculator;
+import mjw.java.concurrency.benchmark.ForLoopCalculator;
+import mjw.java.concurrency.benchmark.ForkJoinCalculator;
+import mjw.java.concurrency.benchmark.ParallelReducer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Benchmark of the implementations of {@link mjw.java.concurrency.benchmark.Calculator} by size of the array and number
+ * of threads
+ *
+ * @author author
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class CalculatorBenchmark {
+
+    @Param({"1000", "100000", "10000000"})
+    public int size;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private long[] numbers;
+    private ForLoopCalculator forLoop;
+    private ExecutorServiceCalculator executorService;
+    private ForkJoinPool reducerPool;
+    private ParallelReducer reducer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        numbers = LongStream.rangeClosed(1, size).toArray();
+        forLoop = new ForLoopCalculator();
+        executorService = new ExecutorServiceCalculator(threads);
+        reducerPool = new ForkJoinPool(threads);
+        reducer = new ParallelReducer(reducerPool, 4);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executorService.shutdown();
+        reducerPool.shutdown();
+    }
+
+    @Benchmark
+    public long forLoop() {
+        return forLoop.sumUp(numbers);
+    }
+
+    @Benchmark
+    public long executorService() {
+        return executorService.sumUp(numbers);
+    }
+
+    /**
+     * ForkJoinCalculator shuts down its pool after every sum, so the calculator is created inside the measured method.
+     * The cost of creating and shutting down the pool is part of the score, as it is for the users of the class
+     */
+    @Benchmark
+    public long forkJoin() {
+        return new ForkJoinCalculator(threads).sumUp(numbers);
+    }
+
+    @Benchmark
+    public long parallelReducer() {
+        return reducer.sumUp(numbers);
+    }
+
+}
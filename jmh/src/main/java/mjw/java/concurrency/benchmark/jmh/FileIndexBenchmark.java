@@ -0,0 +1,101 @@
+package mjw.java.concurrency.benchmark.jmh;
+
+import mjw.java.concurrency.benchmark.Utils;
+import mjw.java.concurrency.benchmark.file.ParallelStream;
+import mjw.java.concurrency.benchmark.file.PureForkJoin;
+import mjw.java.concurrency.benchmark.file.QueuePool;
+import mjw.java.concurrency.benchmark.file.SerializeThread;
+import mjw.java.concurrency.benchmark.file.WordIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the strategies of the word index builder of the file package over a generated text file, by number of
+ * lines and threads. It replaces the timing of TestFile, which measures a single run with Calendar and sleeps between
+ * runs. The index of a million lines holds about 42 million positions, more than the default heap of a small machine,
+ * so the fork gets a heap of 3 GB
+ *
+ * @author author
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class FileIndexBenchmark {
+
+    private static final String LINE = "The Project Gutenberg EBook of The Outline of Science. This eBook is for the "
+            + "use of anyone anywhere at no cost and with almost no restrictions whatsoever. You may copy it, give it "
+            + "away or re-use it under the terms of the Project Gutenberg License included with this eBook";
+
+    @Param({"100000", "1000000"})
+    public long lines;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private Path file;
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("word-index", ".txt");
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            for (long i = 0; i < lines; i++) {
+                writer.write(LINE);
+                writer.newLine();
+            }
+        }
+        Utils.fileLocation = file.toString();
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        pool.shutdown();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public Map<String, List<WordIndex>> singleThread() throws Exception {
+        return new SerializeThread().process();
+    }
+
+    @Benchmark
+    public Map<String, List<WordIndex>> queuePool() throws Exception {
+        return new QueuePool(file.toFile(), 16 * 1024 * 1024).processAll(threads);
+    }
+
+    @Benchmark
+    public Map<String, List<WordIndex>> parallelStream() {
+        return pool.submit(() -> new ParallelStream(file).process()).join();
+    }
+
+    @Benchmark
+    public Map<String, List<WordIndex>> forkJoin() throws Exception {
+        return new PureForkJoin(pool).process(file);
+    }
+
+}
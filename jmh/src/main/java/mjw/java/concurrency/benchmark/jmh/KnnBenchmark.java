@@ -0,0 +1,134 @@
+package mjw.java.concurrency.benchmark.jmh;
+
+import mjw.java.concurrency.knn.BankMarketing;
+import mjw.java.concurrency.knn.IndexedKnnClassifier;
+import mjw.java.concurrency.knn.KdTree;
+import mjw.java.concurrency.knn.KnnClassifier;
+import mjw.java.concurrency.knn.KnnClassifierParallelGroup;
+import mjw.java.concurrency.knn.KnnClassifierParallelIndividual;
+import mjw.java.concurrency.knn.KnnIndexBenchmark;
+import mjw.java.concurrency.knn.SampleMatrix;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the KNN classifiers over synthetic Bank Marketing data, by size of the train data and number of threads.
+ * Every invocation classifies the same QUERIES examples and the score is the time per example. The coarse and
+ * fine-grained classifiers and the pool of classifyAll use exactly threads threads
+ *
+ * @author author
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class KnnBenchmark {
+
+    private static final int K = 10;
+    private static final int QUERIES = 100;
+
+    @Param({"10000", "40000"})
+    public int trainSize;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private List<BankMarketing> test;
+    private KnnClassifier serial;
+    private KnnClassifierParallelGroup group;
+    private KnnClassifierParallelIndividual individual;
+    private IndexedKnnClassifier kdTree;
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SampleMatrix matrix = new SampleMatrix(KnnIndexBenchmark.generate(trainSize, 1));
+        test = KnnIndexBenchmark.generate(QUERIES, 2);
+        serial = new KnnClassifier(matrix, K);
+        group = KnnClassifierParallelGroup.withThreads(matrix, K, threads, false);
+        individual = KnnClassifierParallelIndividual.withThreads(matrix, K, threads, false);
+        kdTree = new IndexedKnnClassifier(new KdTree(matrix), K);
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        group.destroy();
+        individual.destroy();
+        pool.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void serialSort(Blackhole blackhole) {
+        for (BankMarketing example : test) {
+            blackhole.consume(serial.classify(example));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void serialTopK(Blackhole blackhole) {
+        for (BankMarketing example : test) {
+            blackhole.consume(serial.classifyTopK(example));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void groupSort(Blackhole blackhole) throws Exception {
+        for (BankMarketing example : test) {
+            blackhole.consume(group.classify(example));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void groupTopK(Blackhole blackhole) throws Exception {
+        for (BankMarketing example : test) {
+            blackhole.consume(group.classifyTopK(example));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void individualTopK(Blackhole blackhole) throws Exception {
+        for (BankMarketing example : test) {
+            blackhole.consume(individual.classifyTopK(example));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public List<String> classifyAll() {
+        return serial.classifyAll(test, pool);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void kdTree(Blackhole blackhole) {
+        for (BankMarketing example : test) {
+            blackhole.consume(kdTree.classify(example));
+        }
+    }
+
+}
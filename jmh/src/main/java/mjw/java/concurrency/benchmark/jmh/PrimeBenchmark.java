@@ -0,0 +1,84 @@
+package mjw.java.concurrency.benchmark.jmh;
+
+import mjw.java.concurrency.benchmark.prime.TestPrime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the strategies of TestPrime, by number to check and number of threads. The strategies share the static
+ * state of TestPrime, so every fork runs a single combination of parameters
+ *
+ * @author author
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PrimeBenchmark {
+
+    @Param({"1000000007", "100000000003"})
+    public String prime;
+
+    @Param({"1", "2", "4", "8"})
+    public String threads;
+
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        TestPrime.init(prime, threads);
+        pool = new ForkJoinPool(Integer.parseInt(threads));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public boolean singleThread() {
+        return TestPrime.singleThread();
+    }
+
+    @Benchmark
+    public boolean localQueue() throws Exception {
+        return TestPrime.localQueue();
+    }
+
+    @Benchmark
+    public boolean parallelStream() {
+        return pool.submit(TestPrime::parallelStreaming).join();
+    }
+
+    @Benchmark
+    public boolean forkJoin() {
+        return TestPrime.forkJoin();
+    }
+
+    @Benchmark
+    public boolean primalityService() {
+        return TestPrime.primalityService();
+    }
+
+    @Benchmark
+    public boolean segmentedTrialDivision() throws InterruptedException {
+        return TestPrime.segmentedTrialDivision();
+    }
+
+}
@@ -0,0 +1,78 @@
+package mjw.java.concurrency.benchmark.jmh;
+
+import mjw.java.concurrency.benchmark.StreamBenchmarks;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the sums of {@link StreamBenchmarks}, replacing its measurePerf. The parallel streams are executed
+ * inside a pool with the given number of threads, so the parallelism doesn't depend on the common pool
+ *
+ * @author author
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class StreamSumBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public long size;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public long seqSumRangeClosed() {
+        return StreamBenchmarks.seqSumRangeClosed(size);
+    }
+
+    @Benchmark
+    public long paraSumRangeClosed() {
+        return pool.submit(() -> StreamBenchmarks.paraSumRangeClosed(size)).join();
+    }
+
+    @Benchmark
+    public long seqSumIterate() {
+        return StreamBenchmarks.seqSumIterate(size);
+    }
+
+    @Benchmark
+    public long paraSumIterate() {
+        return pool.submit(() -> StreamBenchmarks.paraSumIterate(size)).join();
+    }
+
+    @Benchmark
+    public long iterSumLoop() {
+        return StreamBenchmarks.iterSumLoop(size);
+    }
+
+}
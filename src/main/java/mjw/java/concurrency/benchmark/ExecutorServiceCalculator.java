@@ -16,10 +16,21 @@ public class ExecutorServiceCalculator implements Calculator {
     private ExecutorService pool;
 
     public ExecutorServiceCalculator() {
-        parallism = Runtime.getRuntime().availableProcessors(); // CPU的核心数 默认就用cpu核心数了
+        this(Runtime.getRuntime().availableProcessors()); // CPU的核心数 默认就用cpu核心数了
+    }
+
+    public ExecutorServiceCalculator(int parallism) {
+        this.parallism = parallism;
         pool = Executors.newFixedThreadPool(parallism);
     }
 
+    /**
+     * 关闭线程池，之后不能再调用 sumUp
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
     //处理计算任务的线程
     private static class SumTask implements Callable<Long> {
 
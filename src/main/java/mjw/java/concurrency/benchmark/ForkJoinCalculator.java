@@ -48,6 +48,10 @@ public class ForkJoinCalculator implements Calculator {
         pool = new ForkJoinPool();
     }
 
+    public ForkJoinCalculator(int parallelism) {
+        pool = new ForkJoinPool(parallelism);
+    }
+
     @Override
     public long sumUp(long[] numbers) {
         Long result = pool.invoke(new SumTask(numbers, 0, numbers.length - 1));
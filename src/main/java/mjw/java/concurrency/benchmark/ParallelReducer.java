@@ -0,0 +1,302 @@
+package mjw.java.concurrency.benchmark;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+
+/**
+ * 可重复使用的并行归约引擎，可以对 long[] 和 LongStream 求和、最小值、最大值或任意满足结合律的 LongBinaryOperator。
+ * <p>
+ * 与 ForkJoinCalculator 的区别：
+ * <ul>
+ *     <li>阈值按数据量计算：length / (parallelism * k)，每个线程大约分到 k 个任务，既能负载均衡又不会产生大量小任务</li>
+ *     <li>每次拆分只 fork 右半部分，左半部分在当前线程继续拆分并直接计算</li>
+ *     <li>部分结果保存在 long 字段中，不装箱</li>
+ *     <li>不关闭线程池，可以反复调用，默认使用公共池 ForkJoinPool.commonPool()</li>
+ * </ul>
+ *
+ * @author author
+ */
+public class ParallelReducer implements Calculator {
+
+    public static final LongBinaryOperator SUM = Long::sum;
+    public static final LongBinaryOperator MIN = Math::min;
+    public static final LongBinaryOperator MAX = Math::max;
+
+    /**
+     * 默认每个线程分到的任务数
+     */
+    private static final int DEFAULT_TASKS_PER_THREAD = 4;
+
+    /**
+     * 阈值下限，元素少于它时拆分的开销大于收益
+     */
+    private static final int MIN_THRESHOLD = 1 << 12;
+
+    private final ForkJoinPool pool;
+    private final int tasksPerThread;
+
+    /**
+     * 使用公共池
+     */
+    public ParallelReducer() {
+        this(ForkJoinPool.commonPool(), DEFAULT_TASKS_PER_THREAD);
+    }
+
+    /**
+     * @param pool           执行任务的线程池，由调用者负责关闭
+     * @param tasksPerThread 每个线程分到的任务数，即阈值公式中的 k
+     */
+    public ParallelReducer(ForkJoinPool pool, int tasksPerThread) {
+        if (tasksPerThread <= 0) {
+            throw new IllegalArgumentException("tasksPerThread must be positive: " + tasksPerThread);
+        }
+        this.pool = pool;
+        this.tasksPerThread = tasksPerThread;
+    }
+
+    @Override
+    public long sumUp(long[] numbers) {
+        return sum(numbers);
+    }
+
+    public long sum(long[] numbers) {
+        return reduce(numbers, 0L, SUM);
+    }
+
+    /**
+     * 数组为空时返回 Long.MAX_VALUE
+     */
+    public long min(long[] numbers) {
+        return reduce(numbers, Long.MAX_VALUE, MIN);
+    }
+
+    /**
+     * 数组为空时返回 Long.MIN_VALUE
+     */
+    public long max(long[] numbers) {
+        return reduce(numbers, Long.MIN_VALUE, MAX);
+    }
+
+    public long sum(LongStream numbers) {
+        return reduce(numbers, 0L, SUM);
+    }
+
+    public long min(LongStream numbers) {
+        return reduce(numbers, Long.MAX_VALUE, MIN);
+    }
+
+    public long max(LongStream numbers) {
+        return reduce(numbers, Long.MIN_VALUE, MAX);
+    }
+
+    /**
+     * 对数组做归约
+     *
+     * @param numbers  数组
+     * @param identity op 的单位元，例如求和为 0
+     * @param op       满足结合律的操作，不要求交换律，结果按数组顺序合并
+     * @return 归约结果
+     */
+    public long reduce(long[] numbers, long identity, LongBinaryOperator op) {
+        int threshold = threshold(numbers.length);
+        if (numbers.length <= threshold) {
+            return ArrayTask.reduce(numbers, 0, numbers.length, identity, op);
+        }
+        ArrayTask task = new ArrayTask(numbers, 0, numbers.length, threshold, identity, op);
+        pool.invoke(task);
+        return task.result;
+    }
+
+    /**
+     * 对 LongStream 做归约。流按 Spliterator 拆分，不需要先转换为数组；大小已知时阈值按大小计算，否则使用阈值下限。
+     * <p>
+     * 顺序流的 Spliterator 在有中间操作（如 map、filter）时不会拆分，所以先把流转换为并行流再取 Spliterator，
+     * 这样源和中间操作都按并行方式拆分，拆分后的任务仍在 pool 中执行
+     *
+     * @param numbers  流，会被消费
+     * @param identity op 的单位元
+     * @param op       满足结合律的操作
+     * @return 归约结果
+     */
+    public long reduce(LongStream numbers, long identity, LongBinaryOperator op) {
+        Spliterator.OfLong spliterator = numbers.parallel().spliterator();
+        long size = spliterator.hasCharacteristics(Spliterator.SIZED) ? spliterator.estimateSize() : -1;
+        long threshold = size < 0 ? MIN_THRESHOLD : threshold(size);
+        StreamTask task = new StreamTask(spliterator, threshold, identity, op);
+        if ((size >= 0) && (size <= threshold)) {
+            task.compute();
+        } else {
+            pool.invoke(task);
+        }
+        return task.result;
+    }
+
+    public static void main(String[] args) {
+        long[] numbers = LongStream.rangeClosed(1, 10000000).toArray();
+
+        Calculator calculator = new ParallelReducer();
+        for (int i = 0; i < 5; i++) {
+            Instant start = Instant.now();
+            long result = calculator.sumUp(numbers);
+            Instant end = Instant.now();
+            System.out.println("耗时：" + Duration.between(start, end).toMillis() + "ms，结果为：" + result);
+        }
+    }
+
+    private int threshold(long length) {
+        long threshold = length / ((long) pool.getParallelism() * tasksPerThread);
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(MIN_THRESHOLD, threshold));
+    }
+
+    /**
+     * 数组归约任务，结果保存在 result 中
+     */
+    private static final class ArrayTask extends RecursiveAction {
+
+        private static final long serialVersionUID = -1805658948416202015L;
+
+        private final long[] numbers;
+        private final int from;
+        private final int to;
+        private final int threshold;
+        private final long identity;
+        private final LongBinaryOperator op;
+        private long result;
+
+        /**
+         * 同一次拆分中 fork 出去的任务链表，从左到右
+         */
+        private ArrayTask next;
+
+        ArrayTask(long[] numbers, int from, int to, int threshold, long identity, LongBinaryOperator op) {
+            this.numbers = numbers;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+            this.identity = identity;
+            this.op = op;
+        }
+
+        @Override
+        protected void compute() {
+            // 不断把右半部分 fork 出去，左半部分留给当前线程
+            int hi = to;
+            ArrayTask forked = null;
+            while (hi - from > threshold) {
+                int middle = (from + hi) >>> 1;
+                ArrayTask right = new ArrayTask(numbers, middle, hi, threshold, identity, op);
+                right.next = forked;
+                forked = right;
+                right.fork();
+                hi = middle;
+            }
+            long total = reduce(numbers, from, hi, identity, op);
+            // 最后 fork 的任务离左边最近，按链表顺序合并即保持数组顺序
+            for (ArrayTask task = forked; task != null; task = task.next) {
+                task.join();
+                total = op.applyAsLong(total, task.result);
+            }
+            result = total;
+        }
+
+        static long reduce(long[] numbers, int from, int to, long identity, LongBinaryOperator op) {
+            // 常用操作单独写循环，避免在热点循环里调用接口方法
+            long total = identity;
+            if (op == SUM) {
+                for (int i = from; i < to; i++) {
+                    total += numbers[i];
+                }
+            } else if (op == MIN) {
+                for (int i = from; i < to; i++) {
+                    total = Math.min(total, numbers[i]);
+                }
+            } else if (op == MAX) {
+                for (int i = from; i < to; i++) {
+                    total = Math.max(total, numbers[i]);
+                }
+            } else {
+                for (int i = from; i < to; i++) {
+                    total = op.applyAsLong(total, numbers[i]);
+                }
+            }
+            return total;
+        }
+    }
+
+    /**
+     * 流归约任务，按 Spliterator 拆分
+     */
+    private static final class StreamTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 4521922360394722916L;
+
+        private final Spliterator.OfLong spliterator;
+        private final long threshold;
+        private final long identity;
+        private final LongBinaryOperator op;
+        private long result;
+        private StreamTask next;
+
+        StreamTask(Spliterator.OfLong spliterator, long threshold, long identity, LongBinaryOperator op) {
+            this.spliterator = spliterator;
+            this.threshold = threshold;
+            this.identity = identity;
+            this.op = op;
+        }
+
+        @Override
+        protected void compute() {
+            // trySplit 返回的是前半部分，把它 fork 出去，当前线程继续处理后半部分
+            StreamTask forked = null;
+            Spliterator.OfLong prefix;
+            while ((spliterator.estimateSize() > threshold) && ((prefix = spliterator.trySplit()) != null)) {
+                StreamTask left = new StreamTask(prefix, threshold, identity, op);
+                left.next = forked;
+                forked = left;
+                left.fork();
+            }
+            Accumulator accumulator = new Accumulator(identity, op);
+            spliterator.forEachRemaining(accumulator);
+            result = accumulator.total;
+            // 链表头是最后拆出的前缀，离当前部分最近，从右往左合并
+            for (StreamTask task = forked; task != null; task = task.next) {
+                task.join();
+                result = op.applyAsLong(task.result, result);
+            }
+        }
+    }
+
+    /**
+     * 流归约的累加器，与 ArrayTask.reduce 相同，常用操作直接计算，不调用 op
+     */
+    private static final class Accumulator implements LongConsumer {
+
+        private final LongBinaryOperator op;
+        private long total;
+
+        Accumulator(long identity, LongBinaryOperator op) {
+            this.total = identity;
+            this.op = op;
+        }
+
+        @Override
+        public void accept(long value) {
+            if (op == SUM) {
+                total += value;
+            } else if (op == MIN) {
+                total = Math.min(total, value);
+            } else if (op == MAX) {
+                total = Math.max(total, value);
+            } else {
+                total = op.applyAsLong(total, value);
+            }
+        }
+    }
+
+}
@@ -1,13 +1,9 @@
 package mjw.java.concurrency.benchmark;
 
-import mjw.java.concurrency.benchmark.file.WordIndex;
 import mjw.java.concurrency.benchmark.prime.TestPrime;
 
 import java.io.*;
 import java.math.BigInteger;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
 import java.util.Random;
 
 public class Utils {
@@ -16,7 +12,6 @@ public class Utils {
     public static BigInteger three = new BigInteger("3");
 
     public static String fileLocation = "/tmp/test.txt";
-    public static long numberLinePerThread = 10000;
     public static long lineNum = 1838200;
 
     public static BigInteger sqrt(BigInteger n) {
@@ -54,24 +49,6 @@ public class Utils {
         return lines;
     }
 
-    public static Map<String, List<WordIndex>> processPart(long from, long to)
-            throws Exception {
-        Map<String, List<WordIndex>> result = new HashMap<String, List<WordIndex>>();
-        InputStream is = new FileInputStream(Utils.fileLocation);
-        is.skip(from * 1024);
-        BufferedReader reader = new BufferedReader(new InputStreamReader(is));
-        String s = "";
-        long line = from;
-        while ((s = reader.readLine()) != null && line <= to) {
-            String[] words = s.trim().split("\\s+");
-            for (int i = 0; i < words.length; i++) {
-            }
-            line++;
-        }
-        is.close();
-        return result;
-    }
-
     public static Boolean primeProcessPart(BigInteger from) {
         boolean isPrime = true;
         BigInteger to = from.add(TestPrime.lengthForThread);
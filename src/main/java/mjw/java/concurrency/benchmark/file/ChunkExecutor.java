@@ -0,0 +1,26 @@
+package mjw.java.concurrency.benchmark.file;
+
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * 执行分块任务的策略。WordIndexBuilder 通过它执行统计行数、建立索引和合并三个阶段，
+ * 不同实现（串行、ForkJoin、并行流、线程池）只在任务调度上不同，便于公平比较
+ */
+public interface ChunkExecutor {
+
+    /**
+     * 执行 task(0) 到 task(count - 1)，按下标顺序返回结果
+     *
+     * @param count 任务数
+     * @param task  任务
+     * @return 各任务的结果
+     * @throws Exception 任务执行失败
+     */
+    <T> List<T> map(int count, IntFunction<T> task) throws Exception;
+
+    /**
+     * 并行度，用于确定分块和合并分片的数量
+     */
+    int getParallelism();
+}
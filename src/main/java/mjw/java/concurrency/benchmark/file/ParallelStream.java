@@ -2,47 +2,50 @@ package mjw.java.concurrency.benchmark.file;
 
 import mjw.java.concurrency.benchmark.Utils;
 
+import java.nio.file.Path;
 import java.util.Calendar;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.LongStream;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
-public class ParallelStream {
+/**
+ * 并行流策略：每个阶段的任务由 IntStream.parallel() 在当前的 ForkJoinPool（默认公共池）中执行
+ */
+public class ParallelStream implements ChunkExecutor {
 
-    long countLineNumber;
+    private final Path file;
 
-    public ParallelStream(long countLineNumber) {
-        this.countLineNumber = countLineNumber;
+    public ParallelStream(Path file) {
+        this.file = file;
     }
 
-    public void process() {
-
-        LongStream.range(0, countLineNumber).parallel()
-                .filter(i -> i % Utils.numberLinePerThread == 0)
-                .mapToObj(from -> {
-                    long to = from + Utils.numberLinePerThread - 1;
-                    Map<String, List<WordIndex>> result = null;
-                    try {
-                        Utils.processPart(from, to);
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                    }
-                    return result;
+    public Map<String, List<WordIndex>> process() throws Exception {
+        return WordIndexBuilder.build(file, this);
+    }
 
-                }).count();
+    @Override
+    public <T> List<T> map(int count, IntFunction<T> task) {
+        return IntStream.range(0, count).parallel().mapToObj(task).collect(Collectors.toList());
+    }
 
+    @Override
+    public int getParallelism() {
+        // 在其他 ForkJoinPool 中调用时，并行流使用该线程池
+        return ForkJoinTask.inForkJoinPool() ? ForkJoinTask.getPool().getParallelism()
+                : ForkJoinPool.getCommonPoolParallelism() + 1;
     }
 
-    public static void main(String args[]) throws InterruptedException {
-        long countLineNumber = Utils.countLineNumber(Utils.fileLocation);
-        ParallelStream mc = new ParallelStream(countLineNumber);
-        System.out.println("line number " + countLineNumber);
+    public static void main(String args[]) throws Exception {
+        ParallelStream mc = new ParallelStream(Path.of(Utils.fileLocation));
         for (int i = 0; i < 5; i++) {
             long t1 = Calendar.getInstance().getTimeInMillis();
-            mc.process();
+            Map<String, List<WordIndex>> result = mc.process();
             long t2 = Calendar.getInstance().getTimeInMillis();
-            System.out.println(String.format("Time = %s ms ", (t2 - t1)));
-            Thread.sleep(5000);
+            System.out.println(String.format("Time = %s ms ; number of words = %s", (t2 - t1), result.size()));
         }
     }
-}
\ No newline at end of file
+}
@@ -2,56 +2,82 @@ package mjw.java.concurrency.benchmark.file;
 
 import mjw.java.concurrency.benchmark.Utils;
 
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ForkJoinPool;
-import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntFunction;
 
-public class PureForkJoin<V> extends RecursiveTask<V> {
+/**
+ * ForkJoin 策略：每个阶段的任务下标范围递归二分，直到只剩一个任务
+ */
+public class PureForkJoin implements ChunkExecutor {
 
-    private static final long serialVersionUID = 7926312633273843668L;
+    private final ForkJoinPool pool;
 
-    private long from;
-    private long to;
+    public PureForkJoin(ForkJoinPool pool) {
+        this.pool = pool;
+    }
 
-    public PureForkJoin(long from, long to) {
-        this.from = from;
-        this.to = to;
+    public Map<String, List<WordIndex>> process(Path file) throws Exception {
+        return WordIndexBuilder.build(file, this);
     }
 
     @Override
-    protected V compute() {
-        try {
-            if (to - from <= Utils.numberLinePerThread) {
-                Utils.processPart(from, to);
-                return null;
-            }
-            long middle = (to + from) / 2;
+    @SuppressWarnings("unchecked")
+    public <T> List<T> map(int count, IntFunction<T> task) {
+        Object[] results = new Object[count];
+        if (count > 0) {
+            pool.invoke(new MapTask(task, results, 0, count));
+        }
+        return (List<T>) Arrays.asList(results);
+    }
+
+    @Override
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
 
-            PureForkJoin<Object> leftJoin = new PureForkJoin<Object>(from,
-                    middle);
-            PureForkJoin<Object> rightJoin = new PureForkJoin<Object>(
-                    middle + 1L, to);
+    private static class MapTask extends RecursiveAction {
 
-            invokeAll(leftJoin, rightJoin);
+        private static final long serialVersionUID = 7926312633273843668L;
 
-        } catch (Exception e) {
+        private final IntFunction<?> task;
+        private final Object[] results;
+        private final int from;
+        private final int to;
 
+        MapTask(IntFunction<?> task, Object[] results, int from, int to) {
+            this.task = task;
+            this.results = results;
+            this.from = from;
+            this.to = to;
         }
-        return null;
-    }
 
-    public static void main(String[] args) {
-        long countLineNumber = Utils.countLineNumber(Utils.fileLocation);
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                results[from] = task.apply(from);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new MapTask(task, results, from, middle), new MapTask(task, results, middle, to));
+        }
+    }
 
+    public static void main(String[] args) throws Exception {
+        ForkJoinPool pool = new ForkJoinPool();
+        PureForkJoin fb = new PureForkJoin(pool);
         for (int i = 0; i < 5; i++) {
-            PureForkJoin<Object> fb = new PureForkJoin<Object>(0L, countLineNumber - 1);
-            ForkJoinPool pool = new ForkJoinPool();
-
             long t1 = Calendar.getInstance().getTimeInMillis();
-            pool.invoke(fb);
+            Map<String, List<WordIndex>> result = fb.process(Path.of(Utils.fileLocation));
             long t2 = Calendar.getInstance().getTimeInMillis();
 
-            System.out.println(String.format("Time = %s ms ", (t2 - t1)));
+            System.out.println(String.format("Time = %s ms ; number of words = %s", (t2 - t1), result.size()));
         }
+        pool.shutdown();
     }
-}
\ No newline at end of file
+}
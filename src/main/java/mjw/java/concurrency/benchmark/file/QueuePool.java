@@ -11,65 +11,77 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.function.IntFunction;
 
-public class QueuePool {
+/**
+ * 线程池策略：每个阶段的任务提交给固定大小的线程池，按提交顺序取结果
+ */
+public class QueuePool implements ChunkExecutor {
 
     private File file;
     private int chunkSize;
     private long fileLength;
+    private ExecutorService es;
+    private int noOfThreads;
 
+    /**
+     * @param file      文件
+     * @param chunkSize 每块的字节数，块数至少为线程数
+     */
     public QueuePool(File file, int chunkSize) {
         this.file = file;
         this.chunkSize = chunkSize;
         this.fileLength = file.length();
-        System.out.println("File length = " + this.fileLength);
-    }
-
-    public Callable<Map<String, List<WordIndex>>> processPartTask(
-            final long start, final long end) {
-        return new Callable<Map<String, List<WordIndex>>>() {
-            public Map<String, List<WordIndex>> call() throws Exception {
-                return Utils.processPart(start, end);
-            }
-        };
     }
 
     public Map<String, List<WordIndex>> processAll(int noOfThreads)
             throws Exception {
-        int count = (int) ((fileLength + chunkSize - 1) / chunkSize);
-        java.util.List<Callable<Map<String, List<WordIndex>>>> tasks = new ArrayList<Callable<Map<String, List<WordIndex>>>>(
-                count);
-        for (int i = 0; i < count; i += Utils.numberLinePerThread)
-            tasks.add(processPartTask(i, (i + Utils.numberLinePerThread)));
-        ExecutorService es = Executors.newFixedThreadPool(noOfThreads);
-        java.util.List<Future<Map<String, List<WordIndex>>>> invokes = es
-                .invokeAll(tasks);
-        es.shutdown();
+        this.noOfThreads = noOfThreads;
+        int count = (int) Math.max(noOfThreads, (fileLength + chunkSize - 1) / chunkSize);
+        es = Executors.newFixedThreadPool(noOfThreads);
+        try {
+            return WordIndexBuilder.build(file.toPath(), this, count);
+        } finally {
+            es.shutdown();
+        }
+    }
 
-        for (Future<Map<String, List<WordIndex>>> result : invokes) {
-            Map<String, List<WordIndex>> map = result.get();
+    @Override
+    public <T> List<T> map(int count, IntFunction<T> task) throws Exception {
+        List<Callable<T>> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            tasks.add(() -> task.apply(index));
         }
-        return null;
+        List<T> results = new ArrayList<>(count);
+        for (Future<T> result : es.invokeAll(tasks)) {
+            results.add(result.get());
+        }
+        return results;
+    }
+
+    @Override
+    public int getParallelism() {
+        return noOfThreads;
     }
 
     public static void main(String argv[]) throws Exception {
         long t1 = Calendar.getInstance().getTimeInMillis();
-        QueuePool s = new QueuePool(new File(Utils.fileLocation), 1024);
+        QueuePool s = new QueuePool(new File(Utils.fileLocation), 16 * 1024 * 1024);
 
         Map<String, List<WordIndex>> processAll = s.processAll(8);
 
         long t2 = Calendar.getInstance().getTimeInMillis();
 
+        List<WordIndex> list = processAll.getOrDefault("it", List.of());
         System.out.println(String.format(
                 "Time = %s ms ; number of words = %s, number of 'it' = %s",
-                (t2 - t1), processAll.size(), processAll.get("it").size()));
-
-        List<WordIndex> list = processAll.get("it");
+                (t2 - t1), processAll.size(), list.size()));
 
         System.out.println("Data for words 'it'");
-        for (WordIndex wordIndex : list) {
+        for (WordIndex wordIndex : list.subList(0, Math.min(10, list.size()))) {
             System.out.println(wordIndex.toString());
         }
 
     }
-}
\ No newline at end of file
+}
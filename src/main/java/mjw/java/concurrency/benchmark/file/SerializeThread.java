@@ -2,58 +2,42 @@ package mjw.java.concurrency.benchmark.file;
 
 import mjw.java.concurrency.benchmark.Utils;
 
-import java.io.FileInputStream;
-import java.util.HashMap;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
+import java.util.function.IntFunction;
 
-public class SerializeThread {
-
-    static Map<String, List<WordIndex>> result = new HashMap<String, List<WordIndex>>();
+/**
+ * 串行策略：所有任务在当前线程依次执行，作为对比的基准
+ */
+public class SerializeThread implements ChunkExecutor {
 
     public static void main(String[] args) {
         try {
-
-
+            Map<String, List<WordIndex>> result = new SerializeThread().process();
+            System.out.println("number of words = " + result.size());
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
-    public void process() throws Exception {
-        FileInputStream inputStream = null;
-        Scanner sc = null;
-        try {
-            inputStream = new FileInputStream(Utils.fileLocation);
-            sc = new Scanner(inputStream, "UTF-8");
-            int line = 0;
-            String s = "";
-            String[] words = null;
-            while (sc.hasNextLine()) {
-                s = sc.nextLine();
-                words = s.trim().split("\\s+");
-                for (int i = 0; i < words.length; i++) {
-                    if (!Utils.isEmptyString(words[i])) {
-                        //if (result.get(words[i]) == null) {
-                        //	result.put(words[i], new LinkedList<WordIndex>());
-                        //}
-                        //result.get(words[i]).add(new WordIndex(line, i));
-                    }
-                }
-                line++;
-            }
-            if (sc.ioException() != null) {
-                throw sc.ioException();
-            }
-        } finally {
-            if (inputStream != null) {
-                inputStream.close();
-            }
-            if (sc != null) {
-                sc.close();
-            }
+    public Map<String, List<WordIndex>> process() throws Exception {
+        return WordIndexBuilder.build(Path.of(Utils.fileLocation), this, 1);
+    }
+
+    @Override
+    public <T> List<T> map(int count, IntFunction<T> task) {
+        List<T> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            results.add(task.apply(i));
         }
+        return results;
+    }
+
+    @Override
+    public int getParallelism() {
+        return 1;
     }
 
-}
\ No newline at end of file
+}
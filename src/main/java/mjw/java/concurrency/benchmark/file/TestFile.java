@@ -6,7 +6,10 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Calendar;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ForkJoinPool;
 
 public class TestFile {
@@ -40,37 +43,36 @@ public class TestFile {
     private static void testSingleThread() throws Exception {
         long t1 = Calendar.getInstance().getTimeInMillis();
         SerializeThread mc = new SerializeThread();
-        mc.process();
+        Map<String, List<WordIndex>> result = mc.process();
         long t2 = Calendar.getInstance().getTimeInMillis();
-        System.out.println(String.format("Time = %s ms ", (t2 - t1)));
+        System.out.println(String.format("Time = %s ms ; number of words = %s", (t2 - t1), result.size()));
 
     }
 
     private static void testLocalQueue() throws Exception {
         long t1 = Calendar.getInstance().getTimeInMillis();
-        QueuePool s = new QueuePool(new File(Utils.fileLocation), 1024);
-        s.processAll(8);
+        QueuePool s = new QueuePool(new File(Utils.fileLocation), 16 * 1024 * 1024);
+        Map<String, List<WordIndex>> result = s.processAll(8);
         long t2 = Calendar.getInstance().getTimeInMillis();
-        System.out.println(String.format("Time = %s ms ", (t2 - t1)));
+        System.out.println(String.format("Time = %s ms ; number of words = %s", (t2 - t1), result.size()));
     }
 
-    private static void testParalleStreaming() {
+    private static void testParalleStreaming() throws Exception {
         long t1 = Calendar.getInstance().getTimeInMillis();
-        long countLineNumber = Utils.countLineNumber(Utils.fileLocation);
-        ParallelStream mc = new ParallelStream(countLineNumber);
-        mc.process();
+        ParallelStream mc = new ParallelStream(Path.of(Utils.fileLocation));
+        Map<String, List<WordIndex>> result = mc.process();
         long t2 = Calendar.getInstance().getTimeInMillis();
-        System.out.println(String.format("Time = %s ms ", (t2 - t1)));
+        System.out.println(String.format("Time = %s ms ; number of words = %s", (t2 - t1), result.size()));
     }
 
-    private static void testForkJoin() {
+    private static void testForkJoin() throws Exception {
         long t1 = Calendar.getInstance().getTimeInMillis();
-        long countLineNumber = Utils.countLineNumber(Utils.fileLocation);
-        PureForkJoin fb = new PureForkJoin(0L, countLineNumber - 1);
         ForkJoinPool pool = new ForkJoinPool();
-        pool.invoke(fb);
+        PureForkJoin fb = new PureForkJoin(pool);
+        Map<String, List<WordIndex>> result = fb.process(Path.of(Utils.fileLocation));
+        pool.shutdown();
         long t2 = Calendar.getInstance().getTimeInMillis();
-        System.out.println(String.format("Time = %s ms ", (t2 - t1)));
+        System.out.println(String.format("Time = %s ms ; number of words = %s", (t2 - t1), result.size()));
     }
 
     public static void createTestFile() {
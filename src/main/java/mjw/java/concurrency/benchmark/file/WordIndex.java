@@ -10,6 +10,14 @@ public class WordIndex {
         this.localIndex = localIndex;
     }
 
+    public long getLine() {
+        return line;
+    }
+
+    public int getLocalIndex() {
+        return localIndex;
+    }
+
     @Override
     public String toString() {
         return String.format("Line = %s, localIndex = %s", line, localIndex);
@@ -0,0 +1,268 @@
+package mjw.java.concurrency.benchmark.file;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 并行建立单词倒排索引：单词 -> 出现位置（行号，行内第几个单词）列表，列表按出现顺序排列。
+ * <p>
+ * 步骤：
+ * <ol>
+ *     <li>按字节把文件分成若干块，每块的边界移到下一个换行符之后，保证一行不会跨块</li>
+ *     <li>并行统计每块的行数，前缀和即为每块的起始行号</li>
+ *     <li>并行对每块 mmap 后逐字节扫描分词（空白字符分隔，与 split("\\s+") 一致，但不用正则），按单词的哈希分片，
+ *     每块每个分片一个 Map</li>
+ *     <li>按分片并行合并：分片 i 只读取各块的第 i 个 Map，按块的顺序追加列表，直接写入同一个 ConcurrentHashMap</li>
+ * </ol>
+ */
+public final class WordIndexBuilder {
+
+    /**
+     * 单块最大字节数，mmap 单次映射不能超过 2GB
+     */
+    private static final long MAX_CHUNK_SIZE = 256L * 1024 * 1024;
+
+    /**
+     * 每个线程分到的块数
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private WordIndexBuilder() {
+    }
+
+    /**
+     * 文件中的一块，[start, end)
+     */
+    public record Chunk(long start, long end) {
+
+        public long length() {
+            return end - start;
+        }
+    }
+
+    /**
+     * 按执行器的并行度分块建立索引
+     */
+    public static Map<String, List<WordIndex>> build(Path file, ChunkExecutor executor) throws Exception {
+        return build(file, executor, executor.getParallelism() * CHUNKS_PER_THREAD);
+    }
+
+    /**
+     * 建立索引
+     *
+     * @param file     文件，UTF-8 编码
+     * @param executor 执行各阶段任务的策略
+     * @param parts    分块数，块太大时会自动增加
+     * @return 单词到出现位置的映射
+     */
+    public static Map<String, List<WordIndex>> build(Path file, ChunkExecutor executor, int parts) throws Exception {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<Chunk> chunks = split(channel, parts);
+            if (chunks.isEmpty()) {
+                return new HashMap<>();
+            }
+
+            List<Long> counts = executor.map(chunks.size(), i -> countLines(channel, chunks.get(i)));
+            long[] firstLines = new long[chunks.size()];
+            for (int i = 1; i < firstLines.length; i++) {
+                firstLines[i] = firstLines[i - 1] + counts.get(i - 1);
+            }
+
+            int shards = (chunks.size() == 1) ? 1 : shards(executor.getParallelism());
+            List<List<Map<String, List<WordIndex>>>> indexes =
+                    executor.map(chunks.size(), i -> index(channel, chunks.get(i), firstLines[i], shards));
+            return merge(indexes, executor);
+        }
+    }
+
+    /**
+     * 把文件分成 parts 块，每块的起点都在换行符之后
+     */
+    public static List<Chunk> split(FileChannel channel, int parts) throws IOException {
+        long size = channel.size();
+        parts = (int) Math.max(Math.max(1, parts), (size + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+        List<Chunk> chunks = new ArrayList<>(parts);
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        long start = 0;
+        for (int i = 1; (i <= parts) && (start < size); i++) {
+            long end = i == parts ? size : Math.max(start, size / parts * i);
+            end = nextLine(channel, end, size, buffer);
+            if (end - start > MAX_CHUNK_SIZE) {
+                throw new IOException("Line too long near offset " + start);
+            }
+            if (end > start) {
+                chunks.add(new Chunk(start, end));
+                start = end;
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * 返回 position 所在行的下一行的起点，position 为行首时返回 position
+     */
+    private static long nextLine(FileChannel channel, long position, long size, ByteBuffer buffer)
+            throws IOException {
+        if ((position == 0) || (position >= size)) {
+            return Math.min(position, size);
+        }
+        // 从 position - 1 开始找，这样 position 正好在行首时不会跳过一整行
+        long offset = position - 1;
+        while (offset < size) {
+            buffer.clear();
+            int read = channel.read(buffer, offset);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+        return size;
+    }
+
+    /**
+     * 统计块中的行数，即换行符的个数
+     */
+    public static long countLines(FileChannel channel, Chunk chunk) {
+        MappedByteBuffer buffer = map(channel, chunk);
+        long lines = 0;
+        int limit = buffer.limit();
+        for (int i = 0; i < limit; i++) {
+            if (buffer.get(i) == '\n') {
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * 对一块建立索引
+     *
+     * @param firstLine 块的第一行的行号
+     * @param shards    分片数，必须是 2 的幂
+     * @return 每个分片一个 Map，单词按 shard(word, shards) 放入对应的 Map
+     */
+    public static List<Map<String, List<WordIndex>>> index(FileChannel channel, Chunk chunk, long firstLine,
+                                                           int shards) {
+        MappedByteBuffer buffer = map(channel, chunk);
+        List<Map<String, List<WordIndex>>> result = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            result.add(new HashMap<>());
+        }
+        byte[] word = new byte[64];
+        long line = firstLine;
+        int localIndex = 0;
+        int start = -1;
+        int limit = buffer.limit();
+        for (int i = 0; i < limit; i++) {
+            byte b = buffer.get(i);
+            if (!isWhitespace(b)) {
+                if (start < 0) {
+                    start = i;
+                }
+                continue;
+            }
+            if (start >= 0) {
+                word = add(result, buffer, start, i, word, line, localIndex++);
+                start = -1;
+            }
+            if (b == '\n') {
+                line++;
+                localIndex = 0;
+            }
+        }
+        if (start >= 0) {
+            add(result, buffer, start, limit, word, line, localIndex);
+        }
+        return result;
+    }
+
+    private static byte[] add(List<Map<String, List<WordIndex>>> result, MappedByteBuffer buffer, int start, int end,
+                              byte[] word, long line, int localIndex) {
+        int length = end - start;
+        if (length > word.length) {
+            word = new byte[Math.max(length, word.length * 2)];
+        }
+        buffer.get(start, word, 0, length);
+        String key = new String(word, 0, length, StandardCharsets.UTF_8);
+        result.get(shard(key, result.size())).computeIfAbsent(key, k -> new ArrayList<>())
+                .add(new WordIndex(line, localIndex));
+        return word;
+    }
+
+    /**
+     * 与正则 \s 相同的空白字符：空格、\t、\n、\u000B、\f、\r
+     */
+    private static boolean isWhitespace(byte b) {
+        return (b == ' ') || ((b >= '\t') && (b <= '\r'));
+    }
+
+    /**
+     * 按分片并行合并，同一单词的列表按块的顺序追加，第一个块的列表直接复用。各分片的单词互不相同，所以直接写入同一个
+     * ConcurrentHashMap；容量按各块单词数之和预设，合并过程中不会扩容
+     *
+     * @param indexes 各块按 index 分片后的 Map，所有块的分片数相同
+     */
+    public static Map<String, List<WordIndex>> merge(List<List<Map<String, List<WordIndex>>>> indexes,
+                                                     ChunkExecutor executor) throws Exception {
+        int shards = indexes.get(0).size();
+        if ((indexes.size() == 1) && (shards == 1)) {
+            return indexes.get(0).get(0);
+        }
+        int words = 0;
+        for (List<Map<String, List<WordIndex>>> index : indexes) {
+            for (Map<String, List<WordIndex>> bucket : index) {
+                words += bucket.size();
+            }
+        }
+        Map<String, List<WordIndex>> result = new ConcurrentHashMap<>(words);
+        executor.map(shards, shard -> {
+            for (List<Map<String, List<WordIndex>>> index : indexes) {
+                for (Map.Entry<String, List<WordIndex>> entry : index.get(shard).entrySet()) {
+                    List<WordIndex> list = result.putIfAbsent(entry.getKey(), entry.getValue());
+                    if (list != null) {
+                        list.addAll(entry.getValue());
+                    }
+                }
+            }
+            return null;
+        });
+        return result;
+    }
+
+    /**
+     * 分片数：并行度向上取 2 的幂后再乘 2
+     */
+    private static int shards(int parallelism) {
+        return Integer.highestOneBit(Math.max(1, parallelism) * 2 - 1) << 1;
+    }
+
+    private static int shard(String word, int shards) {
+        int h = word.hashCode();
+        return (h ^ (h >>> 16)) & (shards - 1);
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, Chunk chunk) {
+        try {
+            return channel.map(FileChannel.MapMode.READ_ONLY, chunk.start(), chunk.length());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
@@ -0,0 +1,297 @@
+package mjw.java.concurrency.benchmark.prime;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 素数判定服务：
+ * <ul>
+ *     <li>long 范围：确定性 Miller-Rabin，使用 7 个固定底数，对所有 64 位整数都是准确的，
+ *     乘法取模用 Montgomery 乘法，不创建对象</li>
+ *     <li>试除法：用分段筛只生成 sqrt(n) 以内的素数作为除数，各线程动态领取分段，
+ *     任何线程找到因子后其他线程在下一个分段前停止</li>
+ *     <li>超出 long 范围的 BigInteger：BigInteger.isProbablePrime</li>
+ * </ul>
+ */
+public class PrimalityService {
+
+    /**
+     * 对所有小于 2^64 的整数都准确的底数（Jim Sinclair）
+     */
+    private static final long[] BASES = {2, 325, 9375, 28178, 450775, 9780504, 1795265022};
+
+    private static final int[] SMALL_PRIMES = {2, 3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37};
+
+    /**
+     * isProbablePrime 的 certainty，误判概率小于 2^-100
+     */
+    private static final int CERTAINTY = 100;
+
+    /**
+     * 试除法每个分段包含的奇数个数
+     */
+    private static final int SEGMENT_SIZE = 1 << 15;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * @param pool 试除法使用的线程池，由调用者负责关闭
+     */
+    public PrimalityService(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public PrimalityService() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 判断 BigInteger 是否为素数，long 范围内的数走确定性 Miller-Rabin
+     */
+    public boolean isPrime(BigInteger n) {
+        if (n.bitLength() < Long.SIZE) {
+            return isPrime(n.longValue());
+        }
+        return n.isProbablePrime(CERTAINTY);
+    }
+
+    /**
+     * 确定性 Miller-Rabin
+     */
+    public static boolean isPrime(long n) {
+        if (n < 2) {
+            return false;
+        }
+        for (int p : SMALL_PRIMES) {
+            if (n % p == 0) {
+                return n == p;
+            }
+        }
+        if (n < 41 * 41) {
+            return true;
+        }
+
+        Montgomery m = new Montgomery(n);
+        long d = n - 1;
+        int s = Long.numberOfTrailingZeros(d);
+        d >>>= s;
+        long one = m.one;
+        long minusOne = n - one;
+        for (long base : BASES) {
+            long a = base % n;
+            if (a == 0) {
+                continue;
+            }
+            long x = m.pow(m.toMontgomery(a), d);
+            if ((x == one) || (x == minusOne)) {
+                continue;
+            }
+            boolean composite = true;
+            for (int r = 1; r < s; r++) {
+                x = m.multiply(x, x);
+                if (x == minusOne) {
+                    composite = false;
+                    break;
+                }
+            }
+            if (composite) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 并行试除法判断素数
+     */
+    public boolean isPrimeByTrialDivision(long n) throws InterruptedException {
+        return (n >= 2) && (findDivisor(n) == 0);
+    }
+
+    /**
+     * 并行试除，返回 n 的一个素因子（不一定最小），没有找到（n 为素数）时返回 0
+     */
+    public long findDivisor(long n) throws InterruptedException {
+        if (n < 4) {
+            return 0;
+        }
+        if (n % 2 == 0) {
+            return 2;
+        }
+        long limit = sqrt(n);
+        // 分段筛需要 sqrt(limit) 以内的素数
+        int[] basePrimes = simpleSieve((int) sqrt(limit));
+        long segments = ((limit - 1) / 2 + SEGMENT_SIZE - 1) / SEGMENT_SIZE;
+
+        AtomicLong nextSegment = new AtomicLong();
+        AtomicLong divisor = new AtomicLong();
+        int workers = (int) Math.min(pool.getParallelism(), Math.max(1, segments));
+        List<Future<?>> futures = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            futures.add(pool.submit(() -> {
+                boolean[] composite = new boolean[SEGMENT_SIZE];
+                long segment;
+                while ((divisor.get() == 0) && ((segment = nextSegment.getAndIncrement()) < segments)) {
+                    long found = searchSegment(n, limit, segment, basePrimes, composite);
+                    if (found != 0) {
+                        divisor.compareAndSet(0, found);
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        return divisor.get();
+    }
+
+    /**
+     * 筛出分段中的素数并试除。分段 i 包含奇数 3 + 2 * (i * SEGMENT_SIZE + j)
+     */
+    private static long searchSegment(long n, long limit, long segment, int[] basePrimes, boolean[] composite) {
+        long first = 3 + 2 * segment * SEGMENT_SIZE;
+        int size = (int) Math.min(SEGMENT_SIZE, (limit - first) / 2 + 1);
+        Arrays.fill(composite, 0, size, false);
+        for (int p : basePrimes) {
+            if (p == 2) {
+                continue;
+            }
+            long square = (long) p * p;
+            if (square > first + 2L * (size - 1)) {
+                break;
+            }
+            // 分段内第一个不小于 max(p^2, first) 的 p 的奇数倍
+            long start = Math.max(square, (first + p - 1) / p * p);
+            if ((start & 1) == 0) {
+                start += p;
+            }
+            for (long j = (start - first) / 2; j < size; j += p) {
+                composite[(int) j] = true;
+            }
+        }
+        for (int j = 0; j < size; j++) {
+            if (!composite[j]) {
+                long p = first + 2L * j;
+                if (n % p == 0) {
+                    return p;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static int[] simpleSieve(int limit) {
+        boolean[] composite = new boolean[limit + 1];
+        List<Integer> primes = new ArrayList<>();
+        for (int i = 2; i <= limit; i++) {
+            if (!composite[i]) {
+                primes.add(i);
+                for (long j = (long) i * i; j <= limit; j += i) {
+                    composite[(int) j] = true;
+                }
+            }
+        }
+        return primes.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * 向下取整的平方根
+     */
+    static long sqrt(long n) {
+        long r = (long) Math.sqrt((double) n);
+        while (r * r > n) {
+            r--;
+        }
+        while ((r + 1) * (r + 1) <= n) {
+            r++;
+        }
+        return r;
+    }
+
+    /**
+     * 模 n（奇数，小于 2^63）的 Montgomery 乘法，R = 2^64
+     */
+    private static final class Montgomery {
+
+        private final long n;
+
+        /**
+         * -n^-1 mod 2^64
+         */
+        private final long negInverse;
+
+        /**
+         * R mod n，即 1 的 Montgomery 形式
+         */
+        private final long one;
+
+        /**
+         * R^2 mod n
+         */
+        private final long r2;
+
+        Montgomery(long n) {
+            this.n = n;
+            long inverse = n;
+            // 牛顿迭代，每次精度翻倍：3 -> 6 -> 12 -> 24 -> 48 -> 96 位
+            for (int i = 0; i < 5; i++) {
+                inverse *= 2 - n * inverse;
+            }
+            negInverse = -inverse;
+            one = (Long.remainderUnsigned(-1L, n) + 1) % n;
+            long x = one;
+            for (int i = 0; i < 64; i++) {
+                x <<= 1;
+                if (Long.compareUnsigned(x, n) >= 0) {
+                    x -= n;
+                }
+            }
+            r2 = x;
+        }
+
+        long toMontgomery(long a) {
+            return multiply(a, r2);
+        }
+
+        long multiply(long a, long b) {
+            return reduce(unsignedMultiplyHigh(a, b), a * b);
+        }
+
+        long pow(long base, long exponent) {
+            long result = one;
+            while (exponent > 0) {
+                if ((exponent & 1) != 0) {
+                    result = multiply(result, base);
+                }
+                base = multiply(base, base);
+                exponent >>>= 1;
+            }
+            return result;
+        }
+
+        /**
+         * 计算 (hi * 2^64 + lo) * R^-1 mod n，要求 hi < n
+         */
+        private long reduce(long hi, long lo) {
+            long m = lo * negInverse;
+            // lo + m * n 的低 64 位为 0，lo 不为 0 时产生进位
+            long t = hi + unsignedMultiplyHigh(m, n) + (lo != 0 ? 1 : 0);
+            return Long.compareUnsigned(t, n) >= 0 ? t - n : t;
+        }
+
+        private static long unsignedMultiplyHigh(long a, long b) {
+            return Math.multiplyHigh(a, b) + ((a >> 63) & b) + ((b >> 63) & a);
+        }
+    }
+
+}
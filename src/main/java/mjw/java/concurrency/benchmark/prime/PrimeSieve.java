@@ -0,0 +1,329 @@
+package mjw.java.concurrency.benchmark.prime;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 分段埃拉托斯特尼筛法：
+ * <ul>
+ *     <li>只保存奇数，每个奇数占 1 位，一个 long 表示 128 个数</li>
+ *     <li>区间按分段处理，分段大小与 L1 或 L2 缓存相当，筛一个分段时位图一直在缓存中</li>
+ *     <li>分段之间互不依赖，可以并行处理；任何时刻每个线程只保存一个分段，内存与区间长度无关</li>
+ * </ul>
+ * 只需要 sqrt(to) 以内的素数作为基础素数，to 最大约为 4.6e18
+ */
+public class PrimeSieve {
+
+    /**
+     * 与 L1 数据缓存相当的分段大小，每个分段包含 2^18 个奇数
+     */
+    public static final int L1_SEGMENT_BYTES = 32 * 1024;
+
+    /**
+     * 与 L2 缓存相当的分段大小
+     */
+    public static final int L2_SEGMENT_BYTES = 256 * 1024;
+
+    /**
+     * 基础素数用 int 保存，sqrt(to) 不能超过 Integer.MAX_VALUE
+     */
+    public static final long MAX_LIMIT = (long) Integer.MAX_VALUE * Integer.MAX_VALUE;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * 每个分段包含的奇数个数，是 64 的倍数
+     */
+    private final int segmentBits;
+
+    /**
+     * 计数时每个线程复用的位图
+     */
+    private final ThreadLocal<long[]> buffers;
+
+    public PrimeSieve() {
+        this(ForkJoinPool.commonPool(), L1_SEGMENT_BYTES);
+    }
+
+    /**
+     * @param pool         计数使用的线程池
+     * @param segmentBytes 分段位图的字节数
+     */
+    public PrimeSieve(ForkJoinPool pool, int segmentBytes) {
+        if ((segmentBytes < Long.BYTES) || (segmentBytes > (1 << 27))) {
+            throw new IllegalArgumentException("Invalid segment size: " + segmentBytes);
+        }
+        this.pool = pool;
+        this.segmentBits = segmentBytes / Long.BYTES * Long.SIZE;
+        this.buffers = ThreadLocal.withInitial(() -> new long[segmentBits / Long.SIZE]);
+    }
+
+    /**
+     * 并行计算 [from, to) 中素数的个数
+     */
+    public long count(long from, long to) {
+        Range range = new Range(from, to);
+        long others = pool.submit(() -> LongStream.range(0, range.segments).parallel()
+                .map(segment -> {
+                    long[] bits = buffers.get();
+                    int size = range.sieve(segment, bits);
+                    return countPrimes(bits, size);
+                })
+                .sum()).join();
+        return others + (range.includesTwo ? 1 : 0);
+    }
+
+    /**
+     * [from, to) 中按从小到大顺序的素数流。流默认是串行的，调用 parallel() 后各分段并行筛选，
+     * 顺序相关的操作（如 forEachOrdered、limit）仍按顺序返回结果
+     */
+    public LongStream primes(long from, long to) {
+        Range range = new Range(from, to);
+        return StreamSupport.longStream(new PrimeSpliterator(range, 0, range.segments, range.includesTwo), false);
+    }
+
+    private static long countPrimes(long[] bits, int size) {
+        int words = size >>> 6;
+        long composites = 0;
+        for (int i = 0; i < words; i++) {
+            composites += Long.bitCount(bits[i]);
+        }
+        int rest = size & 63;
+        if (rest != 0) {
+            composites += Long.bitCount(bits[words] & ((1L << rest) - 1));
+        }
+        return size - composites;
+    }
+
+    /**
+     * 要筛选的区间 [from, to) 及其基础素数。分段 i 的第 j 位表示奇数 first + 2 * (i * segmentBits + j)
+     */
+    private final class Range {
+
+        private final long first;
+        private final long to;
+        private final long segments;
+        private final boolean includesTwo;
+
+        /**
+         * sqrt(to) 以内的奇素数
+         */
+        private final int[] basePrimes;
+
+        private Range(long from, long to) {
+            if ((from < 0) || (from > to) || (to > MAX_LIMIT)) {
+                throw new IllegalArgumentException("Invalid range: [" + from + ", " + to + ")");
+            }
+            this.to = to;
+            this.includesTwo = (from <= 2) && (to > 2);
+            long start = Math.max(from, 3) | 1;
+            this.first = start;
+            long odds = (start < to) ? (to - start + 1) / 2 : 0;
+            this.segments = (odds + segmentBits - 1) / segmentBits;
+            this.basePrimes = (to > 9) ? oddPrimes((int) PrimalityService.sqrt(to - 1)) : new int[0];
+        }
+
+        /**
+         * 筛选一个分段，位图中为 1 的位是合数
+         *
+         * @return 分段包含的奇数个数
+         */
+        private int sieve(long segment, long[] bits) {
+            long base = first + 2 * segment * segmentBits;
+            int size = (int) Math.min(segmentBits, (to - base + 1) / 2);
+            Arrays.fill(bits, 0, (size + 63) >>> 6, 0L);
+            long last = base + 2L * (size - 1);
+            for (int prime : basePrimes) {
+                long p = prime;
+                long square = p * p;
+                if (square > last) {
+                    break;
+                }
+                long start;
+                if (square >= base) {
+                    start = square;
+                } else {
+                    // 不小于 base 的第一个 p 的奇数倍
+                    start = (base + p - 1) / p * p;
+                    if ((start & 1) == 0) {
+                        start += p;
+                    }
+                }
+                for (long j = (start - base) >>> 1; j < size; j += p) {
+                    bits[(int) (j >>> 6)] |= 1L << j;
+                }
+            }
+            return size;
+        }
+    }
+
+    /**
+     * 用不分段的奇数位图求出 [3, limit] 中的素数
+     */
+    private static int[] oddPrimes(int limit) {
+        int size = (limit - 1) / 2;
+        long[] bits = new long[(size + 63) >>> 6];
+        int count = 0;
+        // 第 i 位表示奇数 2 * i + 3
+        for (int i = 0; i < size; i++) {
+            if ((bits[i >>> 6] & (1L << i)) == 0) {
+                count++;
+                long p = 2L * i + 3;
+                for (long j = (p * p - 3) / 2; j < size; j += p) {
+                    bits[(int) (j >>> 6)] |= 1L << j;
+                }
+            }
+        }
+        int[] primes = new int[count];
+        int k = 0;
+        for (int i = 0; i < size; i++) {
+            if ((bits[i >>> 6] & (1L << i)) == 0) {
+                primes[k++] = 2 * i + 3;
+            }
+        }
+        return primes;
+    }
+
+    /**
+     * 按分段惰性筛选的 Spliterator，拆分时按分段划分，每个 Spliterator 只保存当前分段的位图
+     */
+    private final class PrimeSpliterator implements Spliterator.OfLong {
+
+        private final Range range;
+        private long segment;
+        private final long end;
+        private boolean pendingTwo;
+
+        /**
+         * 当前分段的位图，尚未开始时为 null
+         */
+        private long[] bits;
+        private long base;
+        private int size;
+        private int word;
+        private long current;
+
+        private PrimeSpliterator(Range range, long segment, long end, boolean pendingTwo) {
+            this.range = range;
+            this.segment = segment;
+            this.end = end;
+            this.pendingTwo = pendingTwo;
+        }
+
+        @Override
+        public boolean tryAdvance(LongConsumer action) {
+            if (pendingTwo) {
+                pendingTwo = false;
+                action.accept(2);
+                return true;
+            }
+            while (true) {
+                if (current != 0) {
+                    int bit = Long.numberOfTrailingZeros(current);
+                    current &= current - 1;
+                    action.accept(base + 2L * ((word << 6) + bit));
+                    return true;
+                }
+                if (!nextWord()) {
+                    return false;
+                }
+            }
+        }
+
+        @Override
+        public void forEachRemaining(LongConsumer action) {
+            if (pendingTwo) {
+                pendingTwo = false;
+                action.accept(2);
+            }
+            do {
+                while (current != 0) {
+                    int bit = Long.numberOfTrailingZeros(current);
+                    current &= current - 1;
+                    action.accept(base + 2L * ((word << 6) + bit));
+                }
+            } while (nextWord());
+        }
+
+        /**
+         * 移动到下一个有素数的字，当前分段结束时筛选下一个分段
+         */
+        private boolean nextWord() {
+            while (true) {
+                if ((bits != null) && (++word << 6) < size) {
+                    current = ~bits[word];
+                    int rest = size - (word << 6);
+                    if (rest < Long.SIZE) {
+                        current &= (1L << rest) - 1;
+                    }
+                    if (current != 0) {
+                        return true;
+                    }
+                    continue;
+                }
+                if (segment >= end) {
+                    bits = null;
+                    return false;
+                }
+                if (bits == null) {
+                    bits = new long[segmentBits / Long.SIZE];
+                }
+                base = range.first + 2 * segment * segmentBits;
+                size = range.sieve(segment, bits);
+                segment++;
+                word = -1;
+            }
+        }
+
+        @Override
+        public Spliterator.OfLong trySplit() {
+            // 只在分段的边界拆分，前一半交给新的 Spliterator
+            if ((bits != null) || (end - segment < 2)) {
+                return null;
+            }
+            long middle = segment + (end - segment) / 2;
+            PrimeSpliterator prefix = new PrimeSpliterator(range, segment, middle, pendingTwo);
+            segment = middle;
+            pendingTwo = false;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return (end - segment) * segmentBits + (pendingTwo ? 1 : 0);
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | DISTINCT | SORTED | NONNULL | IMMUTABLE;
+        }
+
+        @Override
+        public Comparator<? super Long> getComparator() {
+            return null;
+        }
+    }
+
+    public static void main(String[] args) {
+        long limit = (args.length > 0) ? Long.parseLong(args[0]) : 1_000_000_000L;
+        for (int segmentBytes : new int[]{L1_SEGMENT_BYTES, L2_SEGMENT_BYTES}) {
+            PrimeSieve sieve = new PrimeSieve(ForkJoinPool.commonPool(), segmentBytes);
+            for (int i = 0; i < 3; i++) {
+                long t1 = System.nanoTime();
+                long count = sieve.count(0, limit);
+                long t2 = System.nanoTime();
+                long streamed = sieve.primes(0, limit).parallel().count();
+                long t3 = System.nanoTime();
+                System.out.printf("Segment %d KB: %d primes below %d, count %d ms, stream %d ms (%.1f M primes/s)%n",
+                        segmentBytes / 1024, count, limit, (t2 - t1) / 1_000_000, (t3 - t2) / 1_000_000,
+                        streamed * 1000.0 / (t3 - t2));
+            }
+        }
+    }
+
+}
@@ -15,12 +15,19 @@ public class TestPrime {
     public static BigInteger lengthForThread;
     public static BigInteger numberOfThread;
 
-    public static void testPrime(int request, String sPrime,
-            String sNumberOfThread) throws Exception {
+    /**
+     * 设置要检测的数和线程数，各个策略都从这些静态字段读取参数
+     */
+    public static void init(String sPrime, String sNumberOfThread) {
         primeNumber = new BigInteger(sPrime);
         sqrt = Utils.sqrt(primeNumber);
         numberOfThread = new BigInteger(sNumberOfThread);
         lengthForThread = TestPrime.sqrt.divide(numberOfThread);
+    }
+
+    public static void testPrime(int request, String sPrime,
+            String sNumberOfThread) throws Exception {
+        init(sPrime, sNumberOfThread);
         System.out.println(String.format("Request: %s -- ThreadNums: %s ",
                 request, sNumberOfThread));
 
@@ -39,20 +46,58 @@ public class TestPrime {
                 case 4:
                     testSingleThread();
                     break;
+                case 5:
+                    testPrimalityService();
+                    break;
             }
         }
     }
 
     private static void testSingleThread() throws Exception {
         long t1 = Calendar.getInstance().getTimeInMillis();
-        SerializeThread mc = new SerializeThread();
-        boolean isprime = mc.isprime(primeNumber);
+        boolean isprime = singleThread();
         long t2 = Calendar.getInstance().getTimeInMillis();
         System.out.println(t2 - t1);
     }
 
     private static void testLocalQueue() throws Exception {
         long t1 = Calendar.getInstance().getTimeInMillis();
+        boolean isPrime = localQueue();
+        long t2 = Calendar.getInstance().getTimeInMillis();
+
+        System.out.println(t2 - t1);
+    }
+
+    private static void testParalleStreaming() {
+        long t1 = Calendar.getInstance().getTimeInMillis();
+        boolean isPrime = parallelStreaming();
+        long t2 = Calendar.getInstance().getTimeInMillis();
+
+        System.out.println(t2 - t1);
+    }
+
+    private static void testForkJoin() {
+        long t1 = Calendar.getInstance().getTimeInMillis();
+        Boolean isPrime = forkJoin();
+        long t2 = Calendar.getInstance().getTimeInMillis();
+        System.out.println(t2 - t1);
+    }
+
+    private static void testPrimalityService() {
+        long t1 = Calendar.getInstance().getTimeInMillis();
+        boolean isPrime = primalityService();
+        long t2 = Calendar.getInstance().getTimeInMillis();
+        System.out.println(t2 - t1);
+    }
+
+    // 以下为不计时的各个策略，供 JMH 基准测试调用，调用前需先 init
+
+    public static boolean singleThread() {
+        SerializeThread mc = new SerializeThread();
+        return mc.isprime(primeNumber);
+    }
+
+    public static boolean localQueue() throws Exception {
         boolean isPrime = true;
 
         ExecutorService executor = Executors.newFixedThreadPool(numberOfThread.intValue());
@@ -63,31 +108,43 @@ public class TestPrime {
         }
         List<Future<Boolean>> invokeAll = executor.invokeAll(list);
         executor.shutdown();
-        while (executor.isTerminated()) {
-        }
         for (Future<Boolean> future : invokeAll) {
             isPrime &= future.get();
         }
-        long t2 = Calendar.getInstance().getTimeInMillis();
-
-        System.out.println(t2 - t1);
+        return isPrime;
     }
 
-    private static void testParalleStreaming() {
+    public static boolean parallelStreaming() {
         ParallelStream mc = new ParallelStream();
-        long t1 = Calendar.getInstance().getTimeInMillis();
-        boolean isPrime = mc.isPrime();
-        long t2 = Calendar.getInstance().getTimeInMillis();
-
-        System.out.println(t2 - t1);
+        return mc.isPrime();
     }
 
-    private static void testForkJoin() {
+    public static boolean forkJoin() {
         PureForkJoin fb = new PureForkJoin(Utils.two, sqrt);
-        ForkJoinPool pool = new ForkJoinPool();
-        long t1 = Calendar.getInstance().getTimeInMillis();
-        Boolean isPrime = pool.invoke(fb);
-        long t2 = Calendar.getInstance().getTimeInMillis();
-        System.out.println(t2 - t1);
+        ForkJoinPool pool = new ForkJoinPool(numberOfThread.intValue());
+        try {
+            return pool.invoke(fb);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * long 范围内用确定性 Miller-Rabin，更大的数用 BigInteger.isProbablePrime
+     */
+    public static boolean primalityService() {
+        return new PrimalityService().isPrime(primeNumber);
+    }
+
+    /**
+     * 分段筛生成除数的并行试除法，找到因子后所有线程提前结束
+     */
+    public static boolean segmentedTrialDivision() throws InterruptedException {
+        ForkJoinPool pool = new ForkJoinPool(numberOfThread.intValue());
+        try {
+            return new PrimalityService(pool).isPrimeByTrialDivision(primeNumber.longValueExact());
+        } finally {
+            pool.shutdown();
+        }
     }
-}
\ No newline at end of file
+}
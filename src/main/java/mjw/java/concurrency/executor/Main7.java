@@ -0,0 +1,35 @@
+package mjw.java.concurrency.executor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 生产模式的 Server 在过载时的表现：4 个线程，每个任务 10 毫秒，每 1 毫秒提交一个任务，
+ * 提交速度是处理能力的 2.5 倍。分别使用三种策略，最后输出计数器
+ *
+ * @author Jiawei Mao
+ * @version 0.1.0
+ * @since 18 Oct 2026, 10:05 AM
+ */
+public class Main7 {
+
+    public static void main(String[] args) throws InterruptedException {
+        for (OverloadPolicy policy : OverloadPolicy.values()) {
+            Server server = new Server(4, 16, policy, 5);
+            long start = System.nanoTime();
+            for (int i = 0; i < 1000; i++) {
+                server.executeTask(() -> {
+                    try {
+                        TimeUnit.MILLISECONDS.sleep(10);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+                TimeUnit.MILLISECONDS.sleep(1);
+            }
+            server.endServer();
+            server.awaitTermination(1, TimeUnit.MINUTES);
+            System.out.printf("%s: %d ms, %s\n", policy,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), server.getMetrics());
+        }
+    }
+}
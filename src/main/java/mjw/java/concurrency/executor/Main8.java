@@ -0,0 +1,57 @@
+package mjw.java.concurrency.executor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ScatterGather} 示例：模拟 20 张图片的下载，通常 20~60 毫秒，10% 的请求会卡住 2 秒。
+ * 不对冲时只能等到截止时间后取消慢请求；50 毫秒后对冲时慢请求被重新发送，所有图片很快返回
+ *
+ * @author Jiawei Mao
+ * @version 0.1.0
+ * @since 18 Oct 2026, 2:30 PM
+ */
+public class Main8 {
+
+    public static void main(String[] args) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        ScatterGather scatterGather = new ScatterGather(executor, scheduler);
+
+        List<Callable<String>> downloads = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            String name = "image-" + i;
+            downloads.add(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long millis = random.nextInt(10) == 0 ? 2000 : 20 + random.nextInt(40);
+                TimeUnit.MILLISECONDS.sleep(millis);
+                return name;
+            });
+        }
+
+        for (long hedgeDelay : new long[]{0, 50}) {
+            long start = System.nanoTime();
+            try (ScatterGather.Gather<String> gather = scatterGather.submit(downloads, 500, hedgeDelay,
+                    TimeUnit.MILLISECONDS)) {
+                ScatterGather.Completed<String> result;
+                int count = 0;
+                while ((result = gather.next()) != null) {
+                    count++;
+                    System.out.printf("%4d ms: %s%s\n", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                            result.value(), result.hedged() ? " (hedged)" : "");
+                }
+                System.out.printf("Hedge delay %d ms: %d results, %d cancelled at the deadline, %d hedges, %d ms\n",
+                        hedgeDelay, count, gather.getUnfinished(), gather.getHedgesLaunched(),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+        }
+        scheduler.shutdown();
+        executor.shutdown();
+    }
+}
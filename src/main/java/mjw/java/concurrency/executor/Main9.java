@@ -0,0 +1,105 @@
+package mjw.java.concurrency.executor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PriorityWorkStealingExecutor} 示例：
+ * <ol>
+ *     <li>先提交 200 个 20 毫秒的批处理任务，再提交 20 个交互任务，比较交互任务在 FIFO 的固定线程池
+ *     和优先级线程池中的等待时间</li>
+ *     <li>10 个账户各 10000 次不加锁的累加，按账户设置亲和键，同一个账户的任务串行并按顺序执行</li>
+ * </ol>
+ *
+ * @author Jiawei Mao
+ * @version 0.1.0
+ * @since 18 Oct 2026, 7:20 PM
+ */
+public class Main9 {
+
+    private static final int THREADS = 4;
+
+    public static void main(String[] args) throws InterruptedException, ExecutionException {
+        ExecutorService fifo = Executors.newFixedThreadPool(THREADS);
+        System.out.printf("FixedThreadPool: interactive tasks waited %d ms on average\n",
+                interactiveLatency(fifo, null));
+        fifo.shutdown();
+
+        PriorityWorkStealingExecutor executor = new PriorityWorkStealingExecutor(THREADS);
+        System.out.printf("PriorityWorkStealingExecutor: interactive tasks waited %d ms on average\n",
+                interactiveLatency(executor, executor));
+
+        long[] balances = new long[10];
+        long[] sequences = new long[10];
+        int[] outOfOrder = new int[1];
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            for (int account = 0; account < balances.length; account++) {
+                int key = account;
+                long sequence = i;
+                futures.add(executor.submit(() -> {
+                    // 同一个账户的任务不会并发执行，不需要同步
+                    if (sequences[key] != sequence) {
+                        outOfOrder[0]++;
+                    }
+                    sequences[key]++;
+                    balances[key] += 1;
+                }, TaskPriority.NORMAL, key));
+            }
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        long total = 0;
+        for (long balance : balances) {
+            total += balance;
+        }
+        System.out.printf("Affinity: total %d (expected %d), %d tasks out of order\n", total,
+                10000L * balances.length, outOfOrder[0]);
+    }
+
+    /**
+     * 提交批处理任务后提交交互任务，返回交互任务从提交到开始执行的平均毫秒数
+     */
+    private static long interactiveLatency(ExecutorService executor, PriorityWorkStealingExecutor priorityExecutor)
+            throws InterruptedException, ExecutionException {
+        Runnable batch = () -> {
+            try {
+                TimeUnit.MILLISECONDS.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        List<Future<?>> batches = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            batches.add(priorityExecutor == null ? executor.submit(batch)
+                    : priorityExecutor.submit(batch, TaskPriority.LOW, null));
+        }
+
+        List<Future<Long>> interactive = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            long submitted = System.nanoTime();
+            if (priorityExecutor == null) {
+                interactive.add(executor.submit(() -> System.nanoTime() - submitted));
+            } else {
+                interactive.add(priorityExecutor.submit(() -> System.nanoTime() - submitted, TaskPriority.HIGH,
+                        null));
+            }
+        }
+        long total = 0;
+        for (Future<Long> future : interactive) {
+            total += future.get();
+        }
+        for (Future<?> future : batches) {
+            future.get();
+        }
+        return TimeUnit.NANOSECONDS.toMillis(total / interactive.size());
+    }
+}
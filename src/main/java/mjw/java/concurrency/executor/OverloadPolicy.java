@@ -0,0 +1,26 @@
+package mjw.java.concurrency.executor;
+
+/**
+ * 生产模式下 {@link Server} 的队列满时的处理策略
+ *
+ * @author Jiawei Mao
+ * @version 0.1.0
+ * @since 18 Oct 2026, 10:05 AM
+ */
+public enum OverloadPolicy {
+
+    /**
+     * 由提交任务的线程自己执行任务，提交方被拖慢，形成背压
+     */
+    CALLER_RUNS,
+
+    /**
+     * 丢弃队列中最早的任务，再把新任务放入队列，适合只关心最新请求的场景
+     */
+    DROP_OLDEST,
+
+    /**
+     * 用信号量限制在途任务数（线程数 + 队列容量），没有许可时阻塞等待，超时后拒绝
+     */
+    BLOCK
+}
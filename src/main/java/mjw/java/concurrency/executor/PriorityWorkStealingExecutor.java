@@ -0,0 +1,305 @@
+package mjw.java.concurrency.executor;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 带优先级和亲和性的工作窃取线程池，可以直接替换 ExecutorService：
+ * <ul>
+ *     <li>每个线程按优先级各有一个双端队列，自己从队头取任务，空闲的线程从其他线程的队尾窃取。
+ *     线程每次都先找高优先级的任务（包括可以窃取的），短的交互任务不会排在长的批处理任务后面</li>
+ *     <li>指定亲和键（affinity key）的任务按键的哈希固定交给一个线程，放在不能被窃取的队列中，
+ *     同一个键的任务在同一个线程上串行执行，相同优先级的按提交顺序执行，访问键对应的状态不需要加锁</li>
+ * </ul>
+ * execute、submit 等 ExecutorService 的方法使用 NORMAL 优先级，不指定亲和键
+ *
+ * @author Jiawei Mao
+ * @version 0.1.0
+ * @since 18 Oct 2026, 7:20 PM
+ */
+public class PriorityWorkStealingExecutor extends AbstractExecutorService {
+
+    private static final TaskPriority[] PRIORITIES = TaskPriority.values();
+
+    private final Worker[] workers;
+    private final AtomicInteger nextWorker = new AtomicInteger();
+    private final CountDownLatch terminated;
+    private volatile boolean shutdown;
+
+    /**
+     * shutdownNow 之后为 true，线程不再取新任务
+     */
+    private volatile boolean stopped;
+
+    public PriorityWorkStealingExecutor(int threads) {
+        this(threads, "priority-worker-");
+    }
+
+    /**
+     * @param threads    线程数
+     * @param namePrefix 线程名前缀
+     */
+    public PriorityWorkStealingExecutor(int threads, String namePrefix) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Invalid number of threads: " + threads);
+        }
+        workers = new Worker[threads];
+        terminated = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(i, namePrefix + i);
+        }
+        for (Worker worker : workers) {
+            worker.thread.start();
+        }
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        execute(command, TaskPriority.NORMAL, null);
+    }
+
+    public void execute(Runnable command, TaskPriority priority) {
+        execute(command, priority, null);
+    }
+
+    /**
+     * 提交任务
+     *
+     * @param command     任务
+     * @param priority    优先级
+     * @param affinityKey 亲和键，null 表示任何线程都可以执行
+     */
+    public void execute(Runnable command, TaskPriority priority, Object affinityKey) {
+        if ((command == null) || (priority == null)) {
+            throw new NullPointerException();
+        }
+        if (shutdown) {
+            throw new RejectedExecutionException("Executor is shut down");
+        }
+        Deque<Runnable> queue;
+        Worker target;
+        if (affinityKey != null) {
+            target = workers[Math.floorMod(spread(affinityKey.hashCode()), workers.length)];
+            queue = target.pinned[priority.ordinal()];
+        } else {
+            // 线程池中的线程提交的任务放在自己的队列中，外部提交的轮流放在各个线程的队列中
+            Worker current = currentWorker();
+            target = (current != null) ? current
+                    : workers[Math.floorMod(nextWorker.getAndIncrement(), workers.length)];
+            queue = target.local[priority.ordinal()];
+        }
+        queue.addLast(command);
+        // 与关闭并发时，线程可能已经退出，任务还能删除说明没有线程会执行它
+        if (shutdown && queue.removeLastOccurrence(command)) {
+            throw new RejectedExecutionException("Executor is shut down");
+        }
+        if (!target.wake() && (affinityKey == null)) {
+            // 目标线程正忙，唤醒一个空闲线程来窃取
+            for (Worker worker : workers) {
+                if (worker.wake()) {
+                    break;
+                }
+            }
+        }
+    }
+
+    public <T> Future<T> submit(Callable<T> task, TaskPriority priority, Object affinityKey) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        var future = newTaskFor(task);
+        execute(future, priority, affinityKey);
+        return future;
+    }
+
+    public Future<?> submit(Runnable task, TaskPriority priority, Object affinityKey) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        var future = newTaskFor(task, null);
+        execute(future, priority, affinityKey);
+        return future;
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        for (Worker worker : workers) {
+            LockSupport.unpark(worker.thread);
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        stopped = true;
+        shutdown();
+        List<Runnable> pending = new ArrayList<>();
+        for (Worker worker : workers) {
+            worker.thread.interrupt();
+        }
+        for (Worker worker : workers) {
+            for (int level = 0; level < PRIORITIES.length; level++) {
+                drain(worker.pinned[level], pending);
+                drain(worker.local[level], pending);
+            }
+        }
+        return pending;
+    }
+
+    private static void drain(Deque<Runnable> queue, List<Runnable> pending) {
+        Runnable task;
+        while ((task = queue.pollFirst()) != null) {
+            pending.add(task);
+        }
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return terminated.getCount() == 0;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return terminated.await(timeout, unit);
+    }
+
+    private Worker currentWorker() {
+        Thread thread = Thread.currentThread();
+        for (Worker worker : workers) {
+            if (worker.thread == thread) {
+                return worker;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 打散哈希值的高位，避免 hashCode 只有高位不同的键落在同一个线程上
+     */
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * 工作线程，pinned 中是有亲和键的任务，只由自己执行；local 中的任务可以被窃取
+     */
+    private final class Worker implements Runnable {
+
+        private final int index;
+        private final Thread thread;
+        private final Deque<Runnable>[] pinned = newQueues();
+        private final Deque<Runnable>[] local = newQueues();
+
+        /**
+         * 没有找到任务准备 park 时为 true。提交任务的线程先放入任务再读取它，
+         * 线程先写入它再检查一次队列，所以不会错过唤醒
+         */
+        private volatile boolean idle;
+
+        private Worker(int index, String name) {
+            this.index = index;
+            this.thread = new Thread(this, name);
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static Deque<Runnable>[] newQueues() {
+            Deque<Runnable>[] queues = new Deque[PRIORITIES.length];
+            for (int i = 0; i < queues.length; i++) {
+                queues[i] = new ConcurrentLinkedDeque<>();
+            }
+            return queues;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!stopped) {
+                    Runnable task = findTask();
+                    if (task == null) {
+                        idle = true;
+                        task = findTask();
+                        if ((task == null) && shutdown) {
+                            // execute 可能在上次查找之后放入任务，再读到 shutdown 为 false，这样的任务已被接受，
+                            // 只有这里能找到它，所以看到 shutdown 之后再查找一次，仍然没有任务才退出
+                            task = findTask();
+                            if (task == null) {
+                                return;
+                            }
+                        }
+                        if (task == null) {
+                            LockSupport.park(this);
+                            idle = false;
+                            continue;
+                        }
+                        idle = false;
+                    }
+                    runTask(task);
+                }
+            } finally {
+                idle = false;
+                terminated.countDown();
+            }
+        }
+
+        private void runTask(Runnable task) {
+            // 与 ThreadPoolExecutor 一样，shutdownNow 之后取到的任务在中断状态下执行，之前的中断状态清除
+            if (stopped) {
+                thread.interrupt();
+            } else {
+                Thread.interrupted();
+            }
+            try {
+                task.run();
+            } catch (Throwable e) {
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+            }
+        }
+
+        /**
+         * 按优先级从高到低查找：自己的固定队列、自己的队列，最后从其他线程的队尾窃取
+         */
+        private Runnable findTask() {
+            for (int level = 0; level < PRIORITIES.length; level++) {
+                Runnable task = pinned[level].pollFirst();
+                if (task == null) {
+                    task = local[level].pollFirst();
+                }
+                for (int i = 1; (task == null) && (i < workers.length); i++) {
+                    task = workers[(index + i) % workers.length].local[level].pollLast();
+                }
+                if (task != null) {
+                    return task;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * 线程空闲时唤醒它
+         *
+         * @return 线程是否空闲
+         */
+        private boolean wake() {
+            if (idle) {
+                LockSupport.unpark(thread);
+                return true;
+            }
+            return false;
+        }
+    }
+}
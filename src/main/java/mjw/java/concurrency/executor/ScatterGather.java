@@ -0,0 +1,237 @@
+package mjw.java.concurrency.executor;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 分发 N 个任务并按完成顺序收集结果（scatter-gather）：
+ * <ul>
+ *     <li>所有任务共用一个总的截止时间，到期后取消还没完成的任务（中断线程）</li>
+ *     <li>对冲请求：任务提交后经过 hedgeDelay 还没完成，再提交一个相同的任务，
+ *     先完成的结果生效，另一个被取消。这样少数慢任务不会拖慢整体，尾延迟有上限</li>
+ * </ul>
+ * 与 ExecutorCompletionService 相比，同一个任务的多次尝试只产生一个结果，
+ * 一次尝试失败时如果还有其他尝试在执行，会等待其他尝试的结果
+ *
+ * @author Jiawei Mao
+ * @version 0.1.0
+ * @since 18 Oct 2026, 2:30 PM
+ */
+public class ScatterGather {
+
+    private final ExecutorService executor;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * @param executor  执行任务的线程池
+     * @param scheduler 定时提交对冲请求、在截止时间取消未完成任务的线程池
+     */
+    public ScatterGather(ExecutorService executor, ScheduledExecutorService scheduler) {
+        this.executor = executor;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * 提交任务，返回按完成顺序读取结果的 {@link Gather}
+     *
+     * @param tasks      任务
+     * @param timeout    所有任务总的超时时间
+     * @param hedgeDelay 提交对冲请求前等待的时间，0 表示不对冲
+     * @param unit       时间单位
+     */
+    public <T> Gather<T> submit(List<? extends Callable<T>> tasks, long timeout, long hedgeDelay, TimeUnit unit) {
+        Gather<T> gather = new Gather<>(tasks, System.nanoTime() + unit.toNanos(timeout));
+        for (int i = 0; i < tasks.size(); i++) {
+            gather.launch(i, 0);
+            if (hedgeDelay > 0) {
+                int index = i;
+                Future<?> hedge = scheduler.schedule(() -> gather.launch(index, 1), hedgeDelay, unit);
+                gather.hedges.set(index, hedge);
+            }
+        }
+        // 消费者读得慢或提前停止读取时，到期也要取消未完成的任务
+        gather.timer = scheduler.schedule(gather::close, timeout, unit);
+        return gather;
+    }
+
+    /**
+     * 一个任务的结果
+     *
+     * @param index  任务在列表中的位置
+     * @param value  结果，失败时为 null
+     * @param error  失败时的异常
+     * @param hedged 结果是否来自对冲请求
+     */
+    public record Completed<T>(int index, T value, Throwable error, boolean hedged) {
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+
+    /**
+     * 一次分发的结果，按完成顺序读取。读完、到期或关闭时取消所有未完成的任务
+     */
+    public final class Gather<T> implements AutoCloseable {
+
+        private static final int PENDING = 0;
+        private static final int DONE = 1;
+
+        private final List<? extends Callable<T>> tasks;
+        private final long deadline;
+        private final BlockingQueue<Completed<T>> completed = new LinkedBlockingQueue<>();
+
+        /**
+         * 每个任务的状态，PENDING 或 DONE
+         */
+        private final AtomicIntegerArray states;
+
+        /**
+         * 每个任务正在执行的尝试数
+         */
+        private final AtomicIntegerArray running;
+
+        /**
+         * 任务 i 的第 attempt 次尝试保存在 2 * i + attempt
+         */
+        private final AtomicReferenceArray<Future<?>> attempts;
+        private final AtomicReferenceArray<Future<?>> hedges;
+        private final AtomicInteger hedgesLaunched = new AtomicInteger();
+
+        /**
+         * 截止时间到达时执行 close 的定时任务
+         */
+        private volatile Future<?> timer;
+
+        private int received;
+        private volatile boolean closed;
+
+        private Gather(List<? extends Callable<T>> tasks, long deadline) {
+            this.tasks = List.copyOf(tasks);
+            this.deadline = deadline;
+            states = new AtomicIntegerArray(tasks.size());
+            running = new AtomicIntegerArray(tasks.size());
+            attempts = new AtomicReferenceArray<>(tasks.size() * 2);
+            hedges = new AtomicReferenceArray<>(tasks.size());
+        }
+
+        /**
+         * 返回下一个完成的任务，等待到截止时间为止
+         *
+         * @return 下一个结果；所有任务都已返回或已到截止时间时返回 null，此时未完成的任务已被取消
+         */
+        public Completed<T> next() throws InterruptedException {
+            if (received == tasks.size()) {
+                close();
+                return null;
+            }
+            Completed<T> result = completed.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (result == null) {
+                close();
+                return null;
+            }
+            received++;
+            return result;
+        }
+
+        /**
+         * 截止时间到达时还没有结果的任务数
+         */
+        public int getUnfinished() {
+            return tasks.size() - received - completed.size();
+        }
+
+        public int getHedgesLaunched() {
+            return hedgesLaunched.get();
+        }
+
+        /**
+         * 取消所有未完成的任务和尚未提交的对冲请求
+         */
+        @Override
+        public void close() {
+            closed = true;
+            // 可能就是 timer 在执行 close，不能中断
+            Future<?> timer = this.timer;
+            if (timer != null) {
+                timer.cancel(false);
+            }
+            for (int i = 0; i < tasks.size(); i++) {
+                cancel(hedges.get(i));
+                cancel(attempts.get(2 * i));
+                cancel(attempts.get(2 * i + 1));
+            }
+        }
+
+        private void launch(int index, int attempt) {
+            if (closed || (states.get(index) != PENDING)) {
+                return;
+            }
+            if (attempt > 0) {
+                hedgesLaunched.incrementAndGet();
+            }
+            running.incrementAndGet(index);
+            Future<?> future;
+            try {
+                future = executor.submit(() -> run(index, attempt));
+            } catch (RejectedExecutionException e) {
+                fail(index, attempt, e);
+                return;
+            }
+            attempts.set(2 * index + attempt, future);
+            // 保存之前任务可能已完成，或 close 已执行
+            if (closed || (states.get(index) != PENDING)) {
+                cancel(future);
+            }
+        }
+
+        private void run(int index, int attempt) {
+            T value;
+            try {
+                value = tasks.get(index).call();
+            } catch (Throwable e) {
+                fail(index, attempt, e);
+                return;
+            }
+            running.decrementAndGet(index);
+            finish(index, attempt, new Completed<>(index, value, null, attempt > 0));
+        }
+
+        /**
+         * 一次尝试失败，只有没有其他尝试在执行时任务才算失败
+         */
+        private void fail(int index, int attempt, Throwable error) {
+            if ((running.decrementAndGet(index) == 0) && !closed && !(error instanceof CancellationException)) {
+                finish(index, attempt, new Completed<>(index, null, error, attempt > 0));
+            }
+        }
+
+        /**
+         * 第一个完成的尝试生效，取消其他尝试和尚未提交的对冲请求
+         */
+        private void finish(int index, int attempt, Completed<T> result) {
+            if (states.compareAndSet(index, PENDING, DONE)) {
+                completed.add(result);
+                cancel(hedges.get(index));
+                cancel(attempts.get(2 * index + 1 - attempt));
+            }
+        }
+
+        private void cancel(Future<?> future) {
+            if (future != null) {
+                future.cancel(true);
+            }
+        }
+    }
+}
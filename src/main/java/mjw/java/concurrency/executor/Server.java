@@ -1,9 +1,23 @@
 package mjw.java.concurrency.executor;
 
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
+ * Server 有两种模式：
+ * <ul>
+ *     <li>演示模式：无参构造函数，固定线程池 + 无界队列，每次提交都输出 executor 的状态，
+ *     只有关闭后提交的任务才会交给 {@link RejectedTaskController}</li>
+ *     <li>生产模式：有界队列，队列满时按 {@link OverloadPolicy} 处理，不输出任何内容，
+ *     每个任务的排队时间和执行时间记录在 {@link TaskMetrics} 中。过载时排队的任务数有上限，
+ *     内存和延迟都是可预期的</li>
+ * </ul>
+ *
  * @author Jiawei Mao
  * @version 0.0.1
  * @since 08 Feb 2024, 16:23
@@ -12,28 +26,159 @@ public class Server {
 
     private final ThreadPoolExecutor executor;
 
+    /**
+     * 生产模式的计数器，演示模式为 null
+     */
+    private final TaskMetrics metrics;
+
+    /**
+     * BLOCK 策略的许可，数量为线程数 + 队列容量，其他策略为 null
+     */
+    private final Semaphore permits;
+    private final long blockTimeoutNanos;
+
     public Server() {
         executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(
                 Runtime.getRuntime().availableProcessors());
         RejectedTaskController controller = new RejectedTaskController();
         executor.setRejectedExecutionHandler(controller);
+        metrics = null;
+        permits = null;
+        blockTimeoutNanos = 0;
+    }
+
+    /**
+     * 生产模式
+     *
+     * @param poolSize           线程数
+     * @param queueCapacity      队列容量
+     * @param policy             队列满时的处理策略
+     * @param blockTimeoutMillis BLOCK 策略等待许可的最长时间，其他策略忽略
+     */
+    public Server(int poolSize, int queueCapacity, OverloadPolicy policy, long blockTimeoutMillis) {
+        metrics = new TaskMetrics();
+        // BLOCK 策略下许可在任务执行完时释放，此时线程还没有从队列中取下一个任务，
+        // 队列容量取许可总数，拿到许可的任务一定能放入队列
+        int capacity = (policy == OverloadPolicy.BLOCK) ? poolSize + queueCapacity : queueCapacity;
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacity));
+        executor.setRejectedExecutionHandler(overloadHandler(policy));
+        permits = (policy == OverloadPolicy.BLOCK) ? new Semaphore(poolSize + queueCapacity) : null;
+        blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(blockTimeoutMillis);
     }
 
-    public void executeTask(Task task) {
-        System.out.printf("Server: A new task has arrived\n");
-        executor.execute(task);
+    /**
+     * 提交任务
+     *
+     * @return 任务被接受（包括由调用线程执行）时返回 true；被拒绝时返回 false，生产模式下只记录计数
+     */
+    public boolean executeTask(Runnable task) {
+        if (metrics == null) {
+            System.out.printf("Server: A new task has arrived\n");
+            executor.execute(task);
 
-        System.out.printf("Server: Pool Size: %d\n",
-                executor.getPoolSize());
-        System.out.printf("Server: Active Count: %d\n",
-                executor.getActiveCount());
-        System.out.printf("Server: Task Count: %d\n",
-                executor.getTaskCount());
-        System.out.printf("Server: Completed Tasks: %d\n",
-                executor.getCompletedTaskCount());
+            System.out.printf("Server: Pool Size: %d\n",
+                    executor.getPoolSize());
+            System.out.printf("Server: Active Count: %d\n",
+                    executor.getActiveCount());
+            System.out.printf("Server: Task Count: %d\n",
+                    executor.getTaskCount());
+            System.out.printf("Server: Completed Tasks: %d\n",
+                    executor.getCompletedTaskCount());
+            return true;
+        }
+
+        metrics.recordSubmitted();
+        if (permits != null) {
+            try {
+                if (!permits.tryAcquire(blockTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                    metrics.recordRejected();
+                    return false;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                metrics.recordRejected();
+                return false;
+            }
+        }
+        try {
+            executor.execute(new TimedTask(task));
+            return true;
+        } catch (RejectedExecutionException e) {
+            // 只有关闭后才会走到这里：CALLER_RUNS、DROP_OLDEST 由策略处理队列满，BLOCK 的队列容量不小于许可数
+            if (permits != null) {
+                permits.release();
+            }
+            metrics.recordRejected();
+            return false;
+        }
     }
 
     public void endServer() {
         executor.shutdown();
     }
+
+    /**
+     * 等待关闭后所有已接受的任务执行完
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * 生产模式的计数器，演示模式返回 null
+     */
+    public TaskMetrics getMetrics() {
+        return metrics;
+    }
+
+    private RejectedExecutionHandler overloadHandler(OverloadPolicy policy) {
+        return switch (policy) {
+            case CALLER_RUNS -> (r, e) -> {
+                if (e.isShutdown()) {
+                    throw new RejectedExecutionException("Server is shut down");
+                }
+                metrics.recordCallerRuns();
+                r.run();
+            };
+            case DROP_OLDEST -> (r, e) -> {
+                if (e.isShutdown()) {
+                    throw new RejectedExecutionException("Server is shut down");
+                }
+                if (e.getQueue().poll() != null) {
+                    metrics.recordDropped();
+                }
+                e.execute(r);
+            };
+            // 在途任务不超过许可数，也就不超过队列容量，只有关闭后才会拒绝
+            case BLOCK -> new ThreadPoolExecutor.AbortPolicy();
+        };
+    }
+
+    /**
+     * 记录排队时间和执行时间的任务，BLOCK 策略下执行完释放许可
+     */
+    private class TimedTask implements Runnable {
+
+        private final Runnable task;
+        private final long submitTime = System.nanoTime();
+
+        private TimedTask(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            long startTime = System.nanoTime();
+            metrics.recordQueueLatency(startTime - submitTime);
+            try {
+                task.run();
+            } finally {
+                metrics.recordRunLatency(System.nanoTime() - startTime);
+                if (permits != null) {
+                    permits.release();
+                }
+            }
+        }
+    }
 }
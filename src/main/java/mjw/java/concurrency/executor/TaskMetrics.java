@@ -0,0 +1,94 @@
+package mjw.java.concurrency.executor;
+
+import mjw.java.concurrency.server.LatencyHistogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link Server} 生产模式的计数器：任务在队列中等待的时间、执行时间，以及提交、完成、拒绝、丢弃的任务数。
+ * 记录时不加锁也不输出，需要时再调用 {@link #toString()} 查看
+ *
+ * @author Jiawei Mao
+ * @version 0.1.0
+ * @since 18 Oct 2026, 10:05 AM
+ */
+public class TaskMetrics {
+
+    private final LatencyHistogram queueLatency = new LatencyHistogram();
+    private final LatencyHistogram runLatency = new LatencyHistogram();
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder callerRuns = new LongAdder();
+
+    void recordSubmitted() {
+        submitted.increment();
+    }
+
+    void recordQueueLatency(long nanos) {
+        queueLatency.record(nanos);
+    }
+
+    void recordRunLatency(long nanos) {
+        runLatency.record(nanos);
+        completed.increment();
+    }
+
+    void recordRejected() {
+        rejected.increment();
+    }
+
+    void recordDropped() {
+        dropped.increment();
+    }
+
+    void recordCallerRuns() {
+        callerRuns.increment();
+    }
+
+    public LatencyHistogram getQueueLatency() {
+        return queueLatency;
+    }
+
+    public LatencyHistogram getRunLatency() {
+        return runLatency;
+    }
+
+    public long getSubmitted() {
+        return submitted.sum();
+    }
+
+    public long getCompleted() {
+        return completed.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public long getCallerRuns() {
+        return callerRuns.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("submitted=%d, completed=%d, rejected=%d, dropped=%d, callerRuns=%d, "
+                        + "queue p50/p99/max=%d/%d/%d us, run p50/p99/max=%d/%d/%d us",
+                getSubmitted(), getCompleted(), getRejected(), getDropped(), getCallerRuns(),
+                micros(queueLatency.getValueAtPercentile(50)), micros(queueLatency.getValueAtPercentile(99)),
+                micros(queueLatency.getMax()),
+                micros(runLatency.getValueAtPercentile(50)), micros(runLatency.getValueAtPercentile(99)),
+                micros(runLatency.getMax()));
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
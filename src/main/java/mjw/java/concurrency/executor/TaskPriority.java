@@ -0,0 +1,26 @@
+package mjw.java.concurrency.executor;
+
+/**
+ * {@link PriorityWorkStealingExecutor} 的任务优先级，线程总是先执行高优先级的任务
+ *
+ * @author Jiawei Mao
+ * @version 0.1.0
+ * @since 18 Oct 2026, 7:20 PM
+ */
+public enum TaskPriority {
+
+    /**
+     * 短的交互任务
+     */
+    HIGH,
+
+    /**
+     * execute、submit 提交的任务
+     */
+    NORMAL,
+
+    /**
+     * 长的批处理任务
+     */
+    LOW
+}
@@ -0,0 +1,129 @@
+package mjw.java.concurrency.jcip;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * VirtualThreadWebServer
+ * <p/>
+ * 每个请求一个虚拟线程的 LifecycleWebServer。虚拟线程阻塞在 I/O 上时不占用平台线程，
+ * 可以像 ThreadPerTaskWebServer 一样写阻塞代码，又没有线程数量的限制。
+ * <p/>
+ * 关闭是结构化的：stop() 先关闭监听的 socket，不再接受新连接，再等待正在处理的请求完成，
+ * 超过宽限时间后关闭剩余的连接并中断处理线程，stop() 返回时所有处理线程都已结束
+ *
+ * @author Jiawei Mao
+ * @version 0.1.0
+ * @since 18 Oct 2026, 4:10 PM
+ */
+public class VirtualThreadWebServer {
+
+    private static final long GRACE_SECONDS = 10;
+
+    private final int port;
+    private final ExecutorService exec = VirtualThreads.newVirtualThreadPerTaskExecutor();
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private volatile ServerSocket socket;
+
+    public VirtualThreadWebServer(int port) {
+        this.port = port;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = (args.length > 0) ? Integer.parseInt(args[0]) : 8080;
+        new VirtualThreadWebServer(port).start();
+    }
+
+    public void start() throws IOException {
+        socket = new ServerSocket(port, 4096);
+        while (!exec.isShutdown()) {
+            try {
+                final Socket conn = socket.accept();
+                connections.add(conn);
+                try {
+                    exec.execute(() -> {
+                        try {
+                            handleRequest(conn);
+                        } finally {
+                            connections.remove(conn);
+                            close(conn);
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    // 没有任务负责这个连接，在这里关闭，否则 stop() 之前会一直留在 connections 中
+                    connections.remove(conn);
+                    close(conn);
+                    if (!exec.isShutdown())
+                        log("task submission rejected", e);
+                }
+            } catch (SocketException e) {
+                // stop() 关闭了监听的 socket
+                if (!exec.isShutdown())
+                    throw e;
+            }
+        }
+    }
+
+    // 关闭服务器，等待正在处理的请求完成
+    public void stop() throws InterruptedException {
+        exec.shutdown();
+        ServerSocket s = socket;
+        if (s != null)
+            close(s);
+        if (!exec.awaitTermination(GRACE_SECONDS, TimeUnit.SECONDS)) {
+            // 阻塞在 socket 读写上的线程不响应中断，关闭连接让它们退出
+            connections.forEach(VirtualThreadWebServer::close);
+            exec.shutdownNow();
+            exec.awaitTermination(GRACE_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    private void log(String msg, Exception e) {
+        Logger.getAnonymousLogger().log(Level.WARNING, msg, e);
+    }
+
+    private static void close(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception ignored) {
+        }
+    }
+
+    void handleRequest(Socket connection) {
+        Request req = readRequest(connection);
+        if (isShutdownRequest(req))
+            // 不能在处理线程中等待自己结束
+            new Thread(() -> {
+                try {
+                    stop();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }).start();
+        else
+            dispatchRequest(req);
+    }
+
+    interface Request {
+    }
+
+    private Request readRequest(Socket s) {
+        return null;
+    }
+
+    private void dispatchRequest(Request r) {
+    }
+
+    private boolean isShutdownRequest(Request r) {
+        return false;
+    }
+}
@@ -0,0 +1,308 @@
+package mjw.java.concurrency.jcip;
+
+import mjw.java.concurrency.server.LatencyHistogram;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * WebServerBenchmark
+ * <p/>
+ * 用大量并发的阻塞连接压测几种 web server 的线程模型。书中的 server 监听 80 端口、handleRequest 为空，
+ * 所以这里按各自的线程模型重建 server，处理逻辑相同：每个连接是长连接，每行请求先阻塞 delay 毫秒
+ * （模拟访问数据库等阻塞 I/O）再返回一行响应
+ * <ul>
+ *     <li>thread：每个连接一个平台线程，ThreadPerTaskWebServer</li>
+ *     <li>fixed：100 个线程的固定线程池，TaskExecutionWebServer</li>
+ *     <li>cached：CachedThreadPool，LifecycleWebServer</li>
+ *     <li>virtual：每个连接一个虚拟线程，VirtualThreadWebServer，需要 JDK 21+</li>
+ * </ul>
+ * 每个 server 运行在单独的子进程中，以便测量它的常驻内存（Linux 下读取 /proc/pid/status）。
+ * 参数为 key=value：models（默认 thread,fixed,cached,virtual）、connections（默认 2000）、
+ * seconds（默认 10）、delay（默认 10）、port（默认 9090）
+ *
+ * @author Jiawei Mao
+ * @version 0.1.0
+ * @since 18 Oct 2026, 4:10 PM
+ */
+public class WebServerBenchmark {
+
+    private static final String READY = "READY";
+
+    private final String[] models;
+    private final int connections;
+    private final long durationNanos;
+    private final long delayMillis;
+    private final int port;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+    private final AtomicInteger served = new AtomicInteger();
+    private volatile boolean recording;
+    private volatile boolean finished;
+
+    public WebServerBenchmark(Map<String, String> options) {
+        models = options.getOrDefault("models", "thread,fixed,cached,virtual").split(",");
+        connections = Integer.parseInt(options.getOrDefault("connections", "2000"));
+        durationNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("seconds", "10")));
+        delayMillis = Long.parseLong(options.getOrDefault("delay", "10"));
+        port = Integer.parseInt(options.getOrDefault("port", "9090"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int index = arg.indexOf('=');
+            if (index > 0) {
+                options.put(arg.substring(0, index), arg.substring(index + 1));
+            }
+        }
+        if (options.containsKey("serve")) {
+            serve(options.get("serve"), Integer.parseInt(options.get("port")),
+                    Long.parseLong(options.get("delay")));
+            return;
+        }
+
+        WebServerBenchmark benchmark = new WebServerBenchmark(options);
+        System.out.printf("%d connections, backend delay %d ms, %d s per server%n", benchmark.connections,
+                benchmark.delayMillis, TimeUnit.NANOSECONDS.toSeconds(benchmark.durationNanos));
+        System.out.println("Model        req/s   served  errors  p50 (ms)  p99 (ms)  max (ms)  RSS (MB)  threads");
+        for (String model : benchmark.models) {
+            if (model.equals("virtual") && !VirtualThreads.isAvailable()) {
+                System.out.printf("%-8s skipped, virtual threads need JDK 21+ (running %s)%n", model,
+                        Runtime.version());
+                continue;
+            }
+            new WebServerBenchmark(options).run(model);
+        }
+    }
+
+    /**
+     * 在子进程中启动 server，父进程关闭标准输入时退出
+     */
+    private void run(String model) throws Exception {
+        String java = ProcessHandle.current().info().command().orElse("java");
+        String classPath = System.getProperty("java.class.path", "");
+        String modulePath = System.getProperty("jdk.module.path", "");
+        if (!modulePath.isEmpty()) {
+            classPath = classPath.isEmpty() ? modulePath : classPath + File.pathSeparator + modulePath;
+        }
+        Process process = new ProcessBuilder(java, "-cp", classPath, WebServerBenchmark.class.getName(),
+                "serve=" + model, "port=" + port, "delay=" + delayMillis)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        try {
+            BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream()));
+            String line;
+            while (((line = out.readLine()) != null) && !line.equals(READY)) {
+                System.out.println(line);
+            }
+            if (line == null) {
+                throw new IllegalStateException("Server " + model + " didn't start");
+            }
+            measure(model, process.pid());
+        } finally {
+            process.getOutputStream().close();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private void measure(String model, long pid) throws InterruptedException {
+        ExecutorService clients = VirtualThreads.isAvailable() ? VirtualThreads.newVirtualThreadPerTaskExecutor()
+                : Executors.newCachedThreadPool();
+        for (int i = 0; i < connections; i++) {
+            clients.execute(this::client);
+        }
+
+        long peakRss = -1;
+        long peakThreads = -1;
+        long end = System.nanoTime() + durationNanos / 5;
+        while (System.nanoTime() < end) {
+            TimeUnit.MILLISECONDS.sleep(200);
+        }
+        recording = true;
+        long start = System.nanoTime();
+        end = start + durationNanos;
+        while (System.nanoTime() < end) {
+            TimeUnit.MILLISECONDS.sleep(200);
+            peakRss = Math.max(peakRss, readStatus(pid, "VmRSS:"));
+            peakThreads = Math.max(peakThreads, readStatus(pid, "Threads:"));
+        }
+        recording = false;
+        // 客户端断开后排队的连接会被处理，所以在结束前统计
+        int servedConnections = served.get();
+        double seconds = (System.nanoTime() - start) / (double) TimeUnit.SECONDS.toNanos(1);
+        finished = true;
+        clients.shutdown();
+        clients.awaitTermination(30, TimeUnit.SECONDS);
+
+        System.out.printf("%-8s %9.0f %8d %7d %9.1f %9.1f %9.1f %9s %8s%n", model, latency.getCount() / seconds,
+                servedConnections, errors.sum(), millis(latency.getValueAtPercentile(50)),
+                millis(latency.getValueAtPercentile(99)), millis(latency.getMax()),
+                peakRss < 0 ? "n/a" : String.valueOf(peakRss / 1024), peakThreads < 0 ? "n/a" : peakThreads);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    /**
+     * 读取 /proc/pid/status 中的一项，VmRSS 的单位是 kB，不是 Linux 时返回 -1
+     */
+    private static long readStatus(long pid, String key) {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc", String.valueOf(pid), "status"))) {
+                if (line.startsWith(key)) {
+                    return Long.parseLong(line.substring(key.length()).trim().split("\\s+")[0]);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // 不是 Linux 或进程已经结束
+        }
+        return -1;
+    }
+
+    /**
+     * 客户端：保持一个连接，发送请求并等待响应。饿死的连接（fixed 线程池中排队的连接）一直等待，
+     * 所以延迟包含排队时间
+     */
+    private void client() {
+        boolean first = true;
+        while (!finished) {
+            try (Socket socket = new Socket("localhost", port)) {
+                socket.setTcpNoDelay(true);
+                socket.setSoTimeout(200);
+                PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+                while (!finished) {
+                    long start = System.nanoTime();
+                    out.println("GET /");
+                    String response = null;
+                    while (!finished && (response == null)) {
+                        try {
+                            response = in.readLine();
+                            if (response == null) {
+                                throw new IOException("Connection closed by the server");
+                            }
+                        } catch (SocketTimeoutException e) {
+                            // 继续等待，结束时退出
+                        }
+                    }
+                    if (response == null) {
+                        break;
+                    }
+                    if (first) {
+                        first = false;
+                        served.incrementAndGet();
+                    }
+                    if (recording) {
+                        latency.record(System.nanoTime() - start);
+                    }
+                }
+            } catch (IOException e) {
+                if (!finished) {
+                    errors.increment();
+                    try {
+                        TimeUnit.MILLISECONDS.sleep(100);
+                    } catch (InterruptedException ie) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 子进程：按模型启动 server，打印 READY 后等待标准输入关闭
+     */
+    private static void serve(String model, int port, long delayMillis) throws Exception {
+        Thread acceptor;
+        if (model.equals("virtual")) {
+            VirtualThreadWebServer server = new VirtualThreadWebServer(port) {
+                @Override
+                void handleRequest(Socket connection) {
+                    echo(connection, delayMillis);
+                }
+            };
+            acceptor = new Thread(() -> {
+                try {
+                    server.start();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            });
+            acceptor.start();
+            // start() 在另一个线程中绑定端口，等待它就绪
+            while (!isListening(port)) {
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+            System.out.println(READY);
+            System.in.transferTo(OutputStream.nullOutputStream());
+            server.stop();
+        } else {
+            Executor exec = switch (model) {
+                case "thread" -> r -> new Thread(r).start();
+                case "fixed" -> Executors.newFixedThreadPool(100);
+                case "cached" -> Executors.newCachedThreadPool();
+                default -> throw new IllegalArgumentException("Unknown model: " + model);
+            };
+            ServerSocket socket = new ServerSocket(port, 4096);
+            acceptor = new Thread(() -> {
+                while (true) {
+                    try {
+                        final Socket connection = socket.accept();
+                        exec.execute(() -> echo(connection, delayMillis));
+                    } catch (IOException e) {
+                        return;
+                    }
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+            System.out.println(READY);
+            System.in.transferTo(OutputStream.nullOutputStream());
+        }
+        System.exit(0);
+    }
+
+    private static boolean isListening(int port) {
+        try (Socket socket = new Socket("localhost", port)) {
+            return socket.isConnected();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void echo(Socket connection, long delayMillis) {
+        try (connection) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream()));
+            PrintWriter out = new PrintWriter(connection.getOutputStream(), true);
+            String line;
+            while ((line = in.readLine()) != null) {
+                TimeUnit.MILLISECONDS.sleep(delayMillis);
+                out.println("OK " + line.length());
+            }
+        } catch (IOException | InterruptedException e) {
+            // 客户端断开或 server 关闭
+        }
+    }
+}
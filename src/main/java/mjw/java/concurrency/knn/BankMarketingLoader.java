@@ -0,0 +1,41 @@
+package mjw.java.concurrency.knn;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class that loads the examples of the Bank Marketing data set. Every line of the file has the 66 attributes and the
+ * tag of an example separated by ';', already preprocessed as expected by {@link BankMarketing#setData(String[])}
+ *
+ * @author author
+ */
+public class BankMarketingLoader {
+
+    public List<BankMarketing> load(String dataPath) {
+        Path file = Paths.get(dataPath);
+        List<BankMarketing> dataSet = new ArrayList<>();
+        try (InputStream in = Files.newInputStream(file);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in))) {
+            String line = null;
+            while ((line = reader.readLine()) != null) {
+                String data[] = line.split(";");
+                BankMarketing dataObject = new BankMarketing();
+                dataObject.setData(data);
+                dataSet.add(dataObject);
+            }
+        } catch (IOException x) {
+            x.printStackTrace();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return dataSet;
+    }
+
+}
@@ -0,0 +1,91 @@
+package mjw.java.concurrency.knn;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork/join task that classifies a range of examples. The range is divided until it has at most QUERY_BLOCK examples.
+ * Then the train data is processed in tiles of rows that fit in the L2 cache: every tile is compared with all the
+ * examples of the block before moving to the next one, so each row is loaded from memory once per block instead of
+ * once per example
+ *
+ * @author author
+ */
+public class BatchClassifyTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 3666572368222760163L;
+
+    /**
+     * Maximum number of examples classified by a task without dividing it
+     */
+    static final int QUERY_BLOCK = 16;
+
+    /**
+     * Size in bytes of a tile of train data
+     */
+    private static final int TILE_BYTES = 128 * 1024;
+
+    private final SampleMatrix matrix;
+    private final int k;
+
+    /**
+     * Attributes of all the examples to classify
+     */
+    private final double[][] queries;
+
+    /**
+     * Tags of the examples, filled by the tasks
+     */
+    private final String[] results;
+
+    private final int start, end;
+
+    /**
+     * Constructor of the class
+     *
+     * @param matrix  Train data packed in a matrix
+     * @param k       K parameter
+     * @param queries Attributes of all the examples to classify
+     * @param results Array where the tags of the examples are stored
+     * @param start   First example this task classifies
+     * @param end     Example after the last one this task classifies
+     */
+    public BatchClassifyTask(SampleMatrix matrix, int k, double[][] queries, String[] results, int start, int end) {
+        this.matrix = matrix;
+        this.k = k;
+        this.queries = queries;
+        this.results = results;
+        this.start = start;
+        this.end = end;
+    }
+
+    @Override
+    protected void compute() {
+        if (end - start > QUERY_BLOCK) {
+            int middle = (start + end) >>> 1;
+            invokeAll(new BatchClassifyTask(matrix, k, queries, results, start, middle),
+                    new BatchClassifyTask(matrix, k, queries, results, middle, end));
+            return;
+        }
+
+        TopK[] heaps = new TopK[end - start];
+        for (int i = 0; i < heaps.length; i++) {
+            heaps[i] = new TopK(k);
+        }
+        int rows = matrix.getRows();
+        int tileRows = Math.max(1, TILE_BYTES / (Double.BYTES * Math.max(1, matrix.getDims())));
+        for (int tileStart = 0; tileStart < rows; tileStart += tileRows) {
+            int tileEnd = Math.min(rows, tileStart + tileRows);
+            for (int q = start; q < end; q++) {
+                TopK heap = heaps[q - start];
+                double[] query = queries[q];
+                for (int row = tileStart; row < tileEnd; row++) {
+                    heap.offer(matrix.squaredDistance(row, query), row);
+                }
+            }
+        }
+        for (int q = start; q < end; q++) {
+            results[q] = heaps[q - start].majorityTag(matrix);
+        }
+    }
+
+}
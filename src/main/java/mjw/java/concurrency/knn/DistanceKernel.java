@@ -0,0 +1,70 @@
+package mjw.java.concurrency.knn;
+
+/**
+ * Kernel that calculates the squared euclidean distance between a row of a {@link SampleMatrix} and an example. The
+ * kernels don't allocate memory, so they can be called for every row of the train data without creating garbage
+ *
+ * @author author
+ */
+public interface DistanceKernel {
+
+    /**
+     * Method that calculates the squared euclidean distance between a row of a matrix and an example
+     *
+     * @param matrix Values of the matrix in row-major order
+     * @param offset Position of the first value of the row in the matrix
+     * @param query  Values of the example
+     * @param dims   Number of attributes of the examples
+     * @return The squared euclidean distance
+     */
+    double squaredDistance(double[] matrix, int offset, double[] query, int dims);
+
+    /**
+     * Method that calculates the squared euclidean distance between a row of a matrix of bytes and an example. It's
+     * used by the compact mode of {@link SampleMatrix}
+     *
+     * @param matrix Values of the matrix in row-major order
+     * @param offset Position of the first value of the row in the matrix
+     * @param query  Values of the example
+     * @param dims   Number of attributes of the examples
+     * @return The squared euclidean distance
+     */
+    double squaredDistance(byte[] matrix, int offset, double[] query, int dims);
+
+    /**
+     * Method that returns the fastest kernel available. The kernel based on the Vector API is used when the
+     * jdk.incubator.vector module is present (it must be added with --add-modules) and the property knn.vector isn't
+     * false. Otherwise the scalar kernel is used
+     *
+     * @return The kernel
+     */
+    static DistanceKernel getDefault() {
+        return Holder.DEFAULT;
+    }
+
+    /**
+     * Lazy holder of the default kernel
+     */
+    final class Holder {
+
+        private static final DistanceKernel DEFAULT = create();
+
+        private Holder() {
+        }
+
+        private static DistanceKernel create() {
+            if (Boolean.parseBoolean(System.getProperty("knn.vector", "true"))
+                    && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+                try {
+                    // Loaded by name, so the Vector API classes are only linked when the module is present
+                    return (DistanceKernel) Class.forName("mjw.java.concurrency.knn.VectorDistanceKernel")
+                            .getDeclaredConstructor().newInstance();
+                } catch (ReflectiveOperationException | LinkageError e) {
+                    System.err.println("Vector API not available, using the scalar kernel: " + e);
+                }
+            }
+            return new ScalarDistanceKernel();
+        }
+    }
+
+}
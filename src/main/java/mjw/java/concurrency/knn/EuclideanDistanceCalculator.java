@@ -26,7 +26,8 @@ public class EuclideanDistanceCalculator {
         }
 
         for (int i = 0; i < data1.length; i++) {
-            ret += Math.pow(data1[i] - data2[i], 2);
+            double d = data1[i] - data2[i];
+            ret += d * d;
         }
         return Math.sqrt(ret);
 
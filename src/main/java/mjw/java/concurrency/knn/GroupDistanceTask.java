@@ -1,6 +1,5 @@
 package mjw.java.concurrency.knn;
 
-import java.util.List;
 import java.util.concurrent.CountDownLatch;
 
 
@@ -22,14 +21,14 @@ public class GroupDistanceTask implements Runnable {
     private final int startIndex, endIndex;
 
     /**
-     * Example of the test data we want to classify
+     * Attributes of the example of the test data we want to classify
      */
-    private final Sample example;
+    private final double[] query;
 
     /**
-     * Data set with the train data examples
+     * Train data examples packed in a matrix
      */
-    private final List<? extends Sample> dataSet;
+    private final SampleMatrix matrix;
 
     /**
      * Synchronization mechanism to control the end of the task
@@ -42,19 +41,19 @@ public class GroupDistanceTask implements Runnable {
      * @param distances    Array of distances
      * @param startIndex   Start index that determines the examples of the train data this task will process
      * @param endIndex     End index that determines the examples of the train data this task will process
-     * @param dataSet      Data set with the train data examples
-     * @param example      Example of the test data we want to classify
+     * @param matrix       Train data examples packed in a matrix
+     * @param query        Attributes of the example of the test data we want to classify
      * @param endControler Synchronization mechanism to control the end of the task
      */
     public GroupDistanceTask(Distance[] distances, int startIndex,
-            int endIndex, List<? extends Sample> dataSet, Sample example,
+            int endIndex, SampleMatrix matrix, double[] query,
             CountDownLatch endControler) {
 
         this.distances = distances;
         this.startIndex = startIndex;
         this.endIndex = endIndex;
-        this.example = example;
-        this.dataSet = dataSet;
+        this.query = query;
+        this.matrix = matrix;
         this.endControler = endControler;
     }
 
@@ -65,11 +64,9 @@ public class GroupDistanceTask implements Runnable {
      */
     public void run() {
         for (int index = startIndex; index < endIndex; index++) {
-            Sample localExample = dataSet.get(index);
             distances[index] = new Distance();
             distances[index].setIndex(index);
-            distances[index].setDistance(EuclideanDistanceCalculator
-                    .calculate(localExample, example));
+            distances[index].setDistance(matrix.distance(index, query));
         }
         endControler.countDown();
     }
@@ -0,0 +1,77 @@
+package mjw.java.concurrency.knn;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Task of the coarse-grained concurrent version that keeps only the k nearest examples of its part of the train data
+ *
+ * @author author
+ */
+public class GroupTopKTask implements Runnable {
+
+    /**
+     * Nearest examples of the part of the train data of this task
+     */
+    private final TopK topK;
+
+    /**
+     * Indexes that determines the examples of the train data this task will process
+     */
+    private final int startIndex, endIndex;
+
+    /**
+     * Train data examples packed in a matrix
+     */
+    private final SampleMatrix matrix;
+
+    /**
+     * Attributes of the example of the test data we want to classify
+     */
+    private final double[] query;
+
+    /**
+     * Synchronization mechanism to control the end of the task
+     */
+    private final CountDownLatch endControler;
+
+    /**
+     * Constructor of the class. Initializes all the internal data
+     *
+     * @param k            Number of nearest examples to keep
+     * @param startIndex   Start index that determines the examples of the train data this task will process
+     * @param endIndex     End index that determines the examples of the train data this task will process
+     * @param matrix       Train data examples packed in a matrix
+     * @param query        Attributes of the example of the test data we want to classify
+     * @param endControler Synchronization mechanism to control the end of the task
+     */
+    public GroupTopKTask(int k, int startIndex, int endIndex, SampleMatrix matrix, double[] query,
+            CountDownLatch endControler) {
+        this.topK = new TopK(k);
+        this.startIndex = startIndex;
+        this.endIndex = endIndex;
+        this.matrix = matrix;
+        this.query = query;
+        this.endControler = endControler;
+    }
+
+    @Override
+    /**
+     * Concurrent task that keeps the nearest examples between the startIndex and the endIndex
+     */
+    public void run() {
+        for (int index = startIndex; index < endIndex; index++) {
+            topK.offer(matrix.squaredDistance(index, query), index);
+        }
+        endControler.countDown();
+    }
+
+    /**
+     * Method that returns the nearest examples of the task. It must be called after the task ends
+     *
+     * @return The nearest examples
+     */
+    public TopK getTopK() {
+        return topK;
+    }
+
+}
@@ -0,0 +1,67 @@
+package mjw.java.concurrency.knn;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Implementation of the Knn algorithm that finds the nearest examples with an index over the train data instead of
+ * comparing the example to classify with all of them
+ *
+ * @author author
+ */
+public class IndexedKnnClassifier {
+
+    /**
+     * Index over the train data
+     */
+    private final KnnIndex index;
+
+    /**
+     * K parameter
+     */
+    private final int k;
+
+    /**
+     * Constructor of the class
+     *
+     * @param index Index over the train data
+     * @param k     K parameter
+     */
+    public IndexedKnnClassifier(KnnIndex index, int k) {
+        this.index = index;
+        this.k = k;
+    }
+
+    /**
+     * Method that classifies an example
+     *
+     * @param example Example to classify
+     * @return The tag or class of the example
+     */
+    public String classify(Sample example) {
+        return search(example).majorityTag(index.getMatrix());
+    }
+
+    /**
+     * Method that classifies a list of examples in parallel
+     *
+     * @param examples Examples to classify
+     * @return The tags of the examples, in the same order
+     */
+    public List<String> classifyAll(List<? extends Sample> examples) {
+        return examples.parallelStream().map(this::classify).collect(Collectors.toList());
+    }
+
+    /**
+     * Method that returns the nearest examples of the train data found by the index
+     *
+     * @param example Example to classify
+     * @return The nearest examples
+     */
+    public TopK search(Sample example) {
+        TopK topK = new TopK(k);
+        index.search(index.getMatrix().query(example), topK);
+        return topK;
+    }
+
+}
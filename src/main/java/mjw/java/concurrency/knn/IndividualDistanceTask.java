@@ -20,14 +20,14 @@ public class IndividualDistanceTask implements Runnable {
     private final int index;
 
     /**
-     * Example of the train data
+     * Train data packed in a matrix
      */
-    private final Sample localExample;
+    private final SampleMatrix matrix;
 
     /**
-     * Example we want to classify
+     * Attributes of the example we want to classify
      */
-    private final Sample example;
+    private final double[] query;
 
     /**
      * Syncrhonization mechanism to control the end of tasks
@@ -39,16 +39,16 @@ public class IndividualDistanceTask implements Runnable {
      *
      * @param distances    Array of distances
      * @param index        Index of the train data
-     * @param localExample Example of the train data
-     * @param example      Example we want to classify
+     * @param matrix       Train data packed in a matrix
+     * @param query        Attributes of the example we want to classify
      * @param endControler Synchronization mechanism to control the end of the task
      */
-    public IndividualDistanceTask(Distance[] distances, int index, Sample localExample, Sample example,
+    public IndividualDistanceTask(Distance[] distances, int index, SampleMatrix matrix, double[] query,
             CountDownLatch endControler) {
         this.distances = distances;
         this.index = index;
-        this.localExample = localExample;
-        this.example = example;
+        this.matrix = matrix;
+        this.query = query;
         this.endControler = endControler;
     }
 
@@ -60,7 +60,7 @@ public class IndividualDistanceTask implements Runnable {
     public void run() {
         distances[index] = new Distance();
         distances[index].setIndex(index);
-        distances[index].setDistance(EuclideanDistanceCalculator.calculate(localExample, example));
+        distances[index].setDistance(matrix.distance(index, query));
         // 任务完成，count-1
         endControler.countDown();
     }
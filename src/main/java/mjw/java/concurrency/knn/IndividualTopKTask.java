@@ -0,0 +1,71 @@
+package mjw.java.concurrency.knn;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Task of the fine-grained concurrent version that offers the distance of one train example to the heap of the thread
+ * that executes it. Each thread has its own heap, so no synchronization is needed to update it
+ *
+ * @author author
+ */
+public class IndividualTopKTask implements Runnable {
+
+    /**
+     * Heaps of the threads that process the example to classify
+     */
+    private final Map<Thread, TopK> heaps;
+
+    /**
+     * Number of nearest examples to keep
+     */
+    private final int k;
+
+    /**
+     * Index of the example of the train data
+     */
+    private final int index;
+
+    /**
+     * Train data packed in a matrix
+     */
+    private final SampleMatrix matrix;
+
+    /**
+     * Attributes of the example we want to classify
+     */
+    private final double[] query;
+
+    /**
+     * Syncrhonization mechanism to control the end of tasks
+     */
+    private final CountDownLatch endControler;
+
+    /**
+     * Constructor of the class. Initializes the internal data
+     *
+     * @param heaps        Heaps of the threads, a concurrent map shared by all the tasks of an example
+     * @param k            Number of nearest examples to keep
+     * @param index        Index of the train data
+     * @param matrix       Train data packed in a matrix
+     * @param query        Attributes of the example we want to classify
+     * @param endControler Synchronization mechanism to control the end of the task
+     */
+    public IndividualTopKTask(Map<Thread, TopK> heaps, int k, int index, SampleMatrix matrix, double[] query,
+            CountDownLatch endControler) {
+        this.heaps = heaps;
+        this.k = k;
+        this.index = index;
+        this.matrix = matrix;
+        this.query = query;
+        this.endControler = endControler;
+    }
+
+    @Override
+    public void run() {
+        heaps.computeIfAbsent(Thread.currentThread(), t -> new TopK(k))
+                .offer(matrix.squaredDistance(index, query), index);
+        endControler.countDown();
+    }
+
+}
@@ -0,0 +1,182 @@
+package mjw.java.concurrency.knn;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Approximate index of the train data based on an inverted file. The examples are grouped in lists with the k-means
+ * algorithm and the search only visits the lists whose centroids are nearest to the example to classify. The number of
+ * visited lists (probes) is the knob between speed and recall: with all the lists the result is exact
+ *
+ * @author author
+ */
+public class IvfIndex implements KnnIndex {
+
+    /**
+     * Number of iterations of the k-means algorithm
+     */
+    private static final int ITERATIONS = 10;
+
+    private final SampleMatrix matrix;
+
+    /**
+     * Number of lists and attributes
+     */
+    private final int lists, dims;
+
+    /**
+     * Centroids of the lists in row-major order
+     */
+    private final double[] centroids;
+
+    /**
+     * Indexes of the train examples grouped by list. The examples of the list i are between listStart[i] and
+     * listStart[i + 1]
+     */
+    private final int[] members, listStart;
+
+    /**
+     * Number of lists visited by a search
+     */
+    private volatile int probes;
+
+    /**
+     * Constructor of the class. Builds the index
+     *
+     * @param matrix Train data packed in a matrix
+     * @param lists  Number of lists. The square root of the number of examples is a good start
+     * @param probes Number of lists visited by a search
+     * @param seed   Seed to choose the initial centroids
+     */
+    public IvfIndex(SampleMatrix matrix, int lists, int probes, long seed) {
+        this.matrix = matrix;
+        this.lists = Math.max(1, Math.min(lists, matrix.getRows()));
+        this.dims = matrix.getDims();
+        setProbes(probes);
+        centroids = new double[this.lists * dims];
+
+        int rows = matrix.getRows();
+        int[] assignment = new int[rows];
+        initCentroids(new Random(seed));
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            IntStream.range(0, rows).parallel().forEach(row -> assignment[row] = nearestCentroid(row));
+            updateCentroids(assignment);
+        }
+        IntStream.range(0, rows).parallel().forEach(row -> assignment[row] = nearestCentroid(row));
+
+        listStart = new int[this.lists + 1];
+        for (int row = 0; row < rows; row++) {
+            listStart[assignment[row] + 1]++;
+        }
+        for (int list = 0; list < this.lists; list++) {
+            listStart[list + 1] += listStart[list];
+        }
+        members = new int[rows];
+        int[] next = listStart.clone();
+        for (int row = 0; row < rows; row++) {
+            members[next[assignment[row]]++] = row;
+        }
+    }
+
+    @Override
+    public SampleMatrix getMatrix() {
+        return matrix;
+    }
+
+    @Override
+    public void search(double[] query, TopK topK) {
+        if (matrix.getRows() == 0) {
+            return;
+        }
+        TopK nearestLists = new TopK(Math.min(probes, lists));
+        DistanceKernel kernel = matrix.getKernel();
+        for (int list = 0; list < lists; list++) {
+            nearestLists.offer(kernel.squaredDistance(centroids, list * dims, query, dims), list);
+        }
+        for (int i = 0; i < nearestLists.size(); i++) {
+            int list = nearestLists.getIndex(i);
+            for (int j = listStart[list]; j < listStart[list + 1]; j++) {
+                int row = members[j];
+                topK.offer(matrix.squaredDistance(row, query), row);
+            }
+        }
+    }
+
+    public int getLists() {
+        return lists;
+    }
+
+    public int getProbes() {
+        return probes;
+    }
+
+    /**
+     * Method that changes the number of lists visited by a search
+     *
+     * @param probes Number of lists, between 1 and the number of lists of the index
+     */
+    public void setProbes(int probes) {
+        this.probes = Math.max(1, Math.min(probes, lists));
+    }
+
+    /**
+     * Method that takes distinct random examples as the initial centroids
+     */
+    private void initCentroids(Random random) {
+        int rows = matrix.getRows();
+        int[] indexes = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            indexes[i] = i;
+        }
+        for (int list = 0; list < lists; list++) {
+            int chosen = list + random.nextInt(rows - list);
+            int tmp = indexes[list];
+            indexes[list] = indexes[chosen];
+            indexes[chosen] = tmp;
+            for (int d = 0; d < dims; d++) {
+                centroids[list * dims + d] = matrix.getValue(indexes[list], d);
+            }
+        }
+    }
+
+    private int nearestCentroid(int row) {
+        double[] example = new double[dims];
+        for (int d = 0; d < dims; d++) {
+            example[d] = matrix.getValue(row, d);
+        }
+        DistanceKernel kernel = matrix.getKernel();
+        int nearest = 0;
+        double best = Double.POSITIVE_INFINITY;
+        for (int list = 0; list < lists; list++) {
+            double distance = kernel.squaredDistance(centroids, list * dims, example, dims);
+            if (distance < best) {
+                best = distance;
+                nearest = list;
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Method that moves every centroid to the mean of its examples. A centroid without examples doesn't move
+     */
+    private void updateCentroids(int[] assignment) {
+        double[] sums = new double[lists * dims];
+        int[] counts = new int[lists];
+        for (int row = 0; row < assignment.length; row++) {
+            int list = assignment[row];
+            counts[list]++;
+            for (int d = 0; d < dims; d++) {
+                sums[list * dims + d] += matrix.getValue(row, d);
+            }
+        }
+        for (int list = 0; list < lists; list++) {
+            if (counts[list] > 0) {
+                for (int d = 0; d < dims; d++) {
+                    centroids[list * dims + d] = sums[list * dims + d] / counts[list];
+                }
+            }
+        }
+    }
+
+}
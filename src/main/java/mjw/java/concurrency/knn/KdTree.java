@@ -0,0 +1,185 @@
+package mjw.java.concurrency.knn;
+
+/**
+ * Exact index of the train data based on a KD-tree. Every node divides its examples by the median of the attribute with
+ * the largest spread, until a node has at most LEAF_SIZE examples. The search visits first the child of the side of
+ * the example to classify and only visits the other one if its box can contain an example nearer than the farthest one
+ * found, using the incremental distance to the box of Arya and Mount. The result is the same as the one of the brute
+ * force search. The tree works well with few attributes and a lot of examples; with many attributes it has to visit
+ * most of the leaves
+ *
+ * @author author
+ */
+public class KdTree implements KnnIndex {
+
+    /**
+     * Maximum number of examples of a leaf
+     */
+    private static final int LEAF_SIZE = 16;
+
+    private final SampleMatrix matrix;
+
+    /**
+     * Indexes of the train examples, ordered so every node has its examples in a range
+     */
+    private final int[] order;
+
+    /**
+     * Nodes of the tree. A node without children is a leaf
+     */
+    private final int[] start, end, splitDim, left, right;
+    private final double[] splitValue;
+    private int nodes;
+
+    /**
+     * Constructor of the class. Builds the tree
+     *
+     * @param matrix Train data packed in a matrix
+     */
+    public KdTree(SampleMatrix matrix) {
+        this.matrix = matrix;
+        int rows = matrix.getRows();
+        order = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            order[i] = i;
+        }
+        int capacity = 4 * rows / LEAF_SIZE + 2;
+        start = new int[capacity];
+        end = new int[capacity];
+        splitDim = new int[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        splitValue = new double[capacity];
+        build(0, rows);
+    }
+
+    @Override
+    public SampleMatrix getMatrix() {
+        return matrix;
+    }
+
+    @Override
+    public void search(double[] query, TopK topK) {
+        if (matrix.getRows() > 0) {
+            search(0, query, topK, 0.0, new double[matrix.getDims()]);
+        }
+    }
+
+    /**
+     * Method that searches a node
+     *
+     * @param node     Node to search
+     * @param query    Attributes of the example to classify
+     * @param topK     Nearest examples found
+     * @param distance Lower bound of the squared distance between the example and the box of the node
+     * @param offsets  Distance in every attribute between the example and the box of the node
+     */
+    private void search(int node, double[] query, TopK topK, double distance, double[] offsets) {
+        if (left[node] < 0) {
+            for (int i = start[node]; i < end[node]; i++) {
+                int row = order[i];
+                topK.offer(matrix.squaredDistance(row, query), row);
+            }
+            return;
+        }
+
+        int dim = splitDim[node];
+        double diff = query[dim] - splitValue[node];
+        int near = diff < 0 ? left[node] : right[node];
+        int far = diff < 0 ? right[node] : left[node];
+        search(near, query, topK, distance, offsets);
+
+        double old = offsets[dim];
+        double farDistance = distance - old * old + diff * diff;
+        // Equal distances are visited too, because the ties are broken by the index of the example
+        if (farDistance <= topK.worst()) {
+            offsets[dim] = diff;
+            search(far, query, topK, farDistance, offsets);
+            offsets[dim] = old;
+        }
+    }
+
+    /**
+     * Method that builds the node of a range of examples
+     *
+     * @param from First example of the node
+     * @param to   Example after the last one of the node
+     * @return The index of the node
+     */
+    private int build(int from, int to) {
+        int node = nodes++;
+        start[node] = from;
+        end[node] = to;
+        left[node] = -1;
+        right[node] = -1;
+        if (to - from <= LEAF_SIZE) {
+            return node;
+        }
+
+        int dim = -1;
+        double maxSpread = 0.0;
+        for (int d = 0; d < matrix.getDims(); d++) {
+            double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+            for (int i = from; i < to; i++) {
+                double value = matrix.getValue(order[i], d);
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            if (max - min > maxSpread) {
+                maxSpread = max - min;
+                dim = d;
+            }
+        }
+        if (dim < 0) {
+            // All the examples are equal
+            return node;
+        }
+
+        int middle = (from + to) >>> 1;
+        select(from, to, middle, dim);
+        splitDim[node] = dim;
+        splitValue[node] = matrix.getValue(order[middle], dim);
+        left[node] = build(from, middle);
+        right[node] = build(middle, to);
+        return node;
+    }
+
+    /**
+     * Method that moves to a position of a range the example that would be there if the range was sorted by an
+     * attribute. The examples before it aren't greater and the examples after it aren't lower
+     */
+    private void select(int from, int to, int nth, int dim) {
+        int lo = from, hi = to - 1;
+        while (hi > lo) {
+            double pivot = matrix.getValue(order[(lo + hi) >>> 1], dim);
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (matrix.getValue(order[i], dim) < pivot) {
+                    i++;
+                }
+                while (matrix.getValue(order[j], dim) > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int tmp = order[i];
+                    order[i] = order[j];
+                    order[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+            if (nth <= j) {
+                hi = j;
+            } else if (nth >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    public int getNodeCount() {
+        return nodes;
+    }
+
+}
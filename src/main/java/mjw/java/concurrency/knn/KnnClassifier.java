@@ -1,18 +1,20 @@
 package mjw.java.concurrency.knn;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 /**
- * Serial implementation of the Knn algorithm
+ * Serial implementation of the Knn algorithm. The classification of a whole test set with classifyAll is
+ * parallel
  *
  * @author author
  */
 public class KnnClassifier {
 
     /**
-     * List of train data
+     * Train data packed in a matrix
      */
-    private final List<? extends Sample> dataSet;
+    private final SampleMatrix matrix;
 
     /**
      * K parameter
@@ -26,7 +28,17 @@ public class KnnClassifier {
      * @param k       K parameter
      */
     public KnnClassifier(List<? extends Sample> dataSet, int k) {
-        this.dataSet = dataSet;
+        this(new SampleMatrix(dataSet), k);
+    }
+
+    /**
+     * Constructor of the class. Uses train data already packed, so it can be shared by several classifiers
+     *
+     * @param matrix Train data packed in a matrix
+     * @param k      K parameter
+     */
+    public KnnClassifier(SampleMatrix matrix, int k) {
+        this.matrix = matrix;
         this.k = k;
     }
 
@@ -40,26 +52,71 @@ public class KnnClassifier {
     public String classify(Sample example) {
 
         // 计算 sample 与所有训练集的距离
-        Distance[] distances = new Distance[dataSet.size()];
-        int index = 0;
+        double[] query = matrix.query(example);
+        Distance[] distances = new Distance[matrix.getRows()];
 
-        for (Sample localExample : dataSet) {
+        for (int index = 0; index < distances.length; index++) {
             distances[index] = new Distance();
             distances[index].setIndex(index);
-            distances[index].setDistance(EuclideanDistanceCalculator.calculate(localExample, example));
-            index++;
+            distances[index].setDistance(matrix.distance(index, query));
         }
         // 从小到大排序
         Arrays.sort(distances);
 
         Map<String, Integer> results = new HashMap<>();
         for (int i = 0; i < k; i++) {
-            Sample localExample = dataSet.get(distances[i].getIndex());
-            String tag = localExample.getTag();
+            String tag = matrix.getTag(distances[i].getIndex());
             results.merge(tag, 1, Integer::sum);
         }
 
         return Collections.max(results.entrySet(),
                 Map.Entry.comparingByValue()).getKey();
     }
+
+    /**
+     * Method that classifies an example keeping only the k nearest examples of the train data in a bounded heap,
+     * instead of creating and sorting the distances to all of them
+     *
+     * @param example Example to classify
+     * @return The tag or class of the example
+     */
+    public String classifyTopK(Sample example) {
+        double[] query = matrix.query(example);
+        TopK topK = new TopK(k);
+        for (int index = 0; index < matrix.getRows(); index++) {
+            topK.offer(matrix.squaredDistance(index, query), index);
+        }
+        return topK.majorityTag(matrix);
+    }
+
+    /**
+     * Method that classifies a list of examples in the common fork/join pool
+     *
+     * @param examples Examples to classify
+     * @return The tags of the examples, in the same order
+     */
+    public List<String> classifyAll(List<? extends Sample> examples) {
+        return classifyAll(examples, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Method that classifies a list of examples. The examples are divided in blocks that are classified in parallel,
+     * and every block goes over the train data in tiles, so there is one task per block of examples instead of one per
+     * example or per train example
+     *
+     * @param examples Examples to classify
+     * @param pool     Pool that executes the tasks
+     * @return The tags of the examples, in the same order
+     */
+    public List<String> classifyAll(List<? extends Sample> examples, ForkJoinPool pool) {
+        double[][] queries = new double[examples.size()][];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = matrix.query(examples.get(i));
+        }
+        String[] results = new String[queries.length];
+        if ((queries.length > 0) && (matrix.getRows() > 0)) {
+            pool.invoke(new BatchClassifyTask(matrix, k, queries, results, 0, queries.length));
+        }
+        return Arrays.asList(results);
+    }
 }
\ No newline at end of file
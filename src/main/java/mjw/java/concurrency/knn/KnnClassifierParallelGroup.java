@@ -14,9 +14,9 @@ import java.util.concurrent.ThreadPoolExecutor;
 public class KnnClassifierParallelGroup {
 
     /**
-     * Train data
+     * Train data packed in a matrix
      */
-    private List<? extends Sample> dataSet;
+    private SampleMatrix matrix;
 
     /**
      * K parameter
@@ -47,13 +47,45 @@ public class KnnClassifierParallelGroup {
      * @param parallelSort Check to indicate if we use the serial or the parallel sorting
      */
     public KnnClassifierParallelGroup(List<? extends Sample> dataSet, int k, int factor, boolean parallelSort) {
-        this.dataSet = dataSet;
+        this(new SampleMatrix(dataSet), k, factor, parallelSort);
+    }
+
+    /**
+     * Constructor of the class. Uses train data already packed, so it can be shared by several classifiers
+     *
+     * @param matrix       Train data packed in a matrix
+     * @param k            K parameter
+     * @param factor       Factor of increment of the number of cores
+     * @param parallelSort Check to indicate if we use the serial or the parallel sorting
+     */
+    public KnnClassifierParallelGroup(SampleMatrix matrix, int k, int factor, boolean parallelSort) {
+        this(matrix, k, parallelSort, factor * (Runtime.getRuntime().availableProcessors()));
+    }
+
+    private KnnClassifierParallelGroup(SampleMatrix matrix, int k, boolean parallelSort, int numThreads) {
+        if (numThreads <= 0) {
+            throw new IllegalArgumentException("Invalid number of threads: " + numThreads);
+        }
+        this.matrix = matrix;
         this.k = k;
-        numThreads = factor * (Runtime.getRuntime().availableProcessors());
+        this.numThreads = numThreads;
         executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(numThreads);
         this.parallelSort = parallelSort;
     }
 
+    /**
+     * Method that creates a classifier with an exact number of threads instead of a factor of the number of cores
+     *
+     * @param matrix       Train data packed in a matrix
+     * @param k            K parameter
+     * @param threads      Number of threads of the executor
+     * @param parallelSort Check to indicate if we use the serial or the parallel sorting
+     * @return The classifier
+     */
+    public static KnnClassifierParallelGroup withThreads(SampleMatrix matrix, int k, int threads, boolean parallelSort) {
+        return new KnnClassifierParallelGroup(matrix, k, parallelSort, threads);
+    }
+
     /**
      * Method that classify an example
      *
@@ -63,20 +95,21 @@ public class KnnClassifierParallelGroup {
      */
     public String classify(Sample example) throws Exception {
 
-        Distance[] distances = new Distance[dataSet.size()];
+        double[] query = matrix.query(example);
+        Distance[] distances = new Distance[matrix.getRows()];
         CountDownLatch endControler = new CountDownLatch(numThreads);
 
-        int length = dataSet.size() / numThreads;
+        int length = matrix.getRows() / numThreads;
         int startIndex = 0, endIndex = length;
 
         for (int i = 0; i < numThreads; i++) {
             GroupDistanceTask task = new GroupDistanceTask(distances, startIndex, endIndex,
-                    dataSet, example, endControler);
+                    matrix, query, endControler);
             startIndex = endIndex;
             if (i < numThreads - 2) {
                 endIndex = endIndex + length;
             } else {
-                endIndex = dataSet.size();
+                endIndex = matrix.getRows();
             }
             executor.execute(task);
         }
@@ -90,8 +123,7 @@ public class KnnClassifierParallelGroup {
 
         Map<String, Integer> results = new HashMap<>();
         for (int i = 0; i < k; i++) {
-            Sample localExample = dataSet.get(distances[i].getIndex());
-            String tag = localExample.getTag();
+            String tag = matrix.getTag(distances[i].getIndex());
             results.merge(tag, 1, (a, b) -> a + b);
         }
 
@@ -99,6 +131,42 @@ public class KnnClassifierParallelGroup {
                 Map.Entry.comparingByValue()).getKey();
     }
 
+    /**
+     * Method that classify an example. Every task keeps the k nearest examples of its part of the train data in a
+     * bounded heap and the heaps are merged at the end, so there is no array of distances to sort
+     *
+     * @param example Example to classify
+     * @return Class or tag of the example
+     * @throws Exception Exception if something goes wrong
+     */
+    public String classifyTopK(Sample example) throws Exception {
+
+        double[] query = matrix.query(example);
+        GroupTopKTask[] tasks = new GroupTopKTask[numThreads];
+        CountDownLatch endControler = new CountDownLatch(numThreads);
+
+        int length = matrix.getRows() / numThreads;
+        int startIndex = 0, endIndex = length;
+
+        for (int i = 0; i < numThreads; i++) {
+            tasks[i] = new GroupTopKTask(k, startIndex, endIndex, matrix, query, endControler);
+            startIndex = endIndex;
+            if (i < numThreads - 2) {
+                endIndex = endIndex + length;
+            } else {
+                endIndex = matrix.getRows();
+            }
+            executor.execute(tasks[i]);
+        }
+        endControler.await();
+
+        TopK topK = tasks[0].getTopK();
+        for (int i = 1; i < numThreads; i++) {
+            topK.merge(tasks[i].getTopK());
+        }
+        return topK.majorityTag(matrix);
+    }
+
     /**
      * Method that finish the execution of the executor
      */
@@ -3,6 +3,7 @@ package mjw.java.concurrency.knn;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -15,9 +16,9 @@ import java.util.concurrent.ThreadPoolExecutor;
 public class KnnClassifierParallelIndividual {
 
     /**
-     * Train data
+     * Train data packed in a matrix
      */
-    private final List<? extends Sample> dataSet;
+    private final SampleMatrix matrix;
 
     /**
      * K parameter
@@ -48,13 +49,45 @@ public class KnnClassifierParallelIndividual {
      * @param parallelSort Mark that indicates if we use the serial or parallel sorting
      */
     public KnnClassifierParallelIndividual(List<? extends Sample> dataSet, int k, int factor, boolean parallelSort) {
-        this.dataSet = dataSet;
+        this(new SampleMatrix(dataSet), k, factor, parallelSort);
+    }
+
+    /**
+     * Constructor of the class. Uses train data already packed, so it can be shared by several classifiers
+     *
+     * @param matrix       Train data packed in a matrix
+     * @param k            K parameter
+     * @param factor       Factor of increment of the number of cores
+     * @param parallelSort Check to indicate if we use the serial or the parallel sorting
+     */
+    public KnnClassifierParallelIndividual(SampleMatrix matrix, int k, int factor, boolean parallelSort) {
+        this(matrix, k, parallelSort, factor * (Runtime.getRuntime().availableProcessors()));
+    }
+
+    private KnnClassifierParallelIndividual(SampleMatrix matrix, int k, boolean parallelSort, int numThreads) {
+        if (numThreads <= 0) {
+            throw new IllegalArgumentException("Invalid number of threads: " + numThreads);
+        }
+        this.matrix = matrix;
         this.k = k;
-        numThreads = factor * (Runtime.getRuntime().availableProcessors());
+        this.numThreads = numThreads;
         executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(numThreads);
         this.parallelSort = parallelSort;
     }
 
+    /**
+     * Method that creates a classifier with an exact number of threads instead of a factor of the number of cores
+     *
+     * @param matrix       Train data packed in a matrix
+     * @param k            K parameter
+     * @param threads      Number of threads of the executor
+     * @param parallelSort Check to indicate if we use the serial or the parallel sorting
+     * @return The classifier
+     */
+    public static KnnClassifierParallelIndividual withThreads(SampleMatrix matrix, int k, int threads, boolean parallelSort) {
+        return new KnnClassifierParallelIndividual(matrix, k, parallelSort, threads);
+    }
+
     /**
      * Method that classifies and example
      *
@@ -65,14 +98,13 @@ public class KnnClassifierParallelIndividual {
     public String classify(Sample example) throws Exception {
 
         // 用于保存计算结果
-        Distance[] distances = new Distance[dataSet.size()];
-        CountDownLatch endController = new CountDownLatch(dataSet.size());
+        double[] query = matrix.query(example);
+        Distance[] distances = new Distance[matrix.getRows()];
+        CountDownLatch endController = new CountDownLatch(distances.length);
 
-        int index = 0;
-        for (Sample localExample : dataSet) {
-            IndividualDistanceTask task = new IndividualDistanceTask(distances, index, localExample, example, endController);
+        for (int index = 0; index < distances.length; index++) {
+            IndividualDistanceTask task = new IndividualDistanceTask(distances, index, matrix, query, endController);
             executor.execute(task);
-            index++;
         }
         endController.await();
 
@@ -85,8 +117,7 @@ public class KnnClassifierParallelIndividual {
 
         Map<String, Integer> results = new HashMap<>();
         for (int i = 0; i < k; i++) {
-            Sample localExample = dataSet.get(distances[i].getIndex());
-            String tag = localExample.getTag();
+            String tag = matrix.getTag(distances[i].getIndex());
             results.merge(tag, 1, (a, b) -> a + b);
         }
 
@@ -96,6 +127,32 @@ public class KnnClassifierParallelIndividual {
 
     }
 
+    /**
+     * Method that classifies and example. Every thread of the executor keeps the k nearest examples it has processed in
+     * its own bounded heap and the heaps are merged at the end, so there is no array of distances to sort
+     *
+     * @param example Example to classify
+     * @return The tag or class of the example
+     * @throws Exception Exception is something goes wrong
+     */
+    public String classifyTopK(Sample example) throws Exception {
+
+        double[] query = matrix.query(example);
+        Map<Thread, TopK> heaps = new ConcurrentHashMap<>();
+        CountDownLatch endController = new CountDownLatch(matrix.getRows());
+
+        for (int index = 0; index < matrix.getRows(); index++) {
+            executor.execute(new IndividualTopKTask(heaps, k, index, matrix, query, endController));
+        }
+        endController.await();
+
+        TopK topK = new TopK(k);
+        for (TopK heap : heaps.values()) {
+            topK.merge(heap);
+        }
+        return topK.majorityTag(matrix);
+    }
+
     /**
      * Method that finish the execution of the executor
      */
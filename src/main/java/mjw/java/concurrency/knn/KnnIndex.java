@@ -0,0 +1,26 @@
+package mjw.java.concurrency.knn;
+
+/**
+ * Interface of the indexes over the train data that find the nearest examples without comparing the example to
+ * classify with all of them
+ *
+ * @author author
+ */
+public interface KnnIndex {
+
+    /**
+     * Method that returns the train data of the index
+     *
+     * @return The train data packed in a matrix
+     */
+    SampleMatrix getMatrix();
+
+    /**
+     * Method that searches the nearest examples of the train data
+     *
+     * @param query Attributes of the example to classify
+     * @param topK  Heap where the nearest examples are stored. Its capacity is the number of examples to find
+     */
+    void search(double[] query, TopK topK);
+
+}
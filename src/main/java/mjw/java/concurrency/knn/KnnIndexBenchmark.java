@@ -0,0 +1,192 @@
+package mjw.java.concurrency.knn;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Benchmark that compares the brute force classifier with the classifiers that use a KD-tree and an inverted file
+ * index, over the train data stored as doubles and in compact mode. It reports the build time, the mean latency of a
+ * query, the accuracy against the tags of the test data and the recall of the nearest examples against the exact ones.
+ * If the paths of the train and test files are passed as arguments the Bank Marketing data is loaded from them,
+ * otherwise a synthetic data set with the same attributes is generated
+ *
+ * @author author
+ */
+public class KnnIndexBenchmark {
+
+    private static final int K = 10;
+    private static final int TRAIN_SIZE = 40_000;
+    private static final int TEST_SIZE = 1_000;
+    private static final int[] PROBES = {1, 2, 4, 8, 16, 32};
+
+    /**
+     * Ranges of the one-hot attributes of a Bank Marketing example: job, marital, education, credit, housing, loan,
+     * contact, month, day and poutcome
+     */
+    private static final int[][] ONE_HOT = {{1, 13}, {13, 17}, {17, 25}, {25, 28}, {28, 31}, {31, 34}, {34, 36},
+            {36, 48}, {48, 53}, {58, 61}};
+
+    public static void main(String[] args) {
+        List<BankMarketing> train, test;
+        if (args.length >= 2) {
+            BankMarketingLoader loader = new BankMarketingLoader();
+            train = loader.load(args[0]);
+            test = loader.load(args[1]);
+        } else {
+            train = generate(TRAIN_SIZE, 1);
+            test = generate(TEST_SIZE, 2);
+        }
+        System.out.println("Train: " + train.size() + ", test: " + test.size() + ", k: " + K);
+
+        long start = System.nanoTime();
+        SampleMatrix matrix = new SampleMatrix(train);
+        System.out.printf("Matrix build: %.2f ms, %d bytes per example%n", millis(start),
+                matrix.getValueBytes() / Math.max(1, matrix.getRows()));
+        start = System.nanoTime();
+        SampleMatrix compact = new SampleMatrix(train, true);
+        System.out.printf("Compact matrix build: %.2f ms, %d bytes per example%n", millis(start),
+                compact.getValueBytes() / Math.max(1, compact.getRows()));
+
+        // Exact nearest examples, to calculate the recall of the indexes
+        KnnClassifier bruteForce = new KnnClassifier(matrix, K);
+        List<Set<Integer>> exact = new ArrayList<>();
+        for (BankMarketing example : test) {
+            TopK topK = new TopK(K);
+            double[] query = matrix.query(example);
+            for (int row = 0; row < matrix.getRows(); row++) {
+                topK.offer(matrix.squaredDistance(row, query), row);
+            }
+            exact.add(indexes(topK));
+        }
+
+        System.out.println("Classifier          Build (ms)   Query (us)   Accuracy     Recall");
+        measureBruteForce("Brute force", bruteForce, test);
+        measureBruteForce("Brute compact", new KnnClassifier(compact, K), test);
+
+        start = System.nanoTime();
+        KdTree tree = new KdTree(matrix);
+        measure("KD-tree", millis(start), new IndexedKnnClassifier(tree, K), test, exact);
+        start = System.nanoTime();
+        KdTree compactTree = new KdTree(compact);
+        measure("KD-tree compact", millis(start), new IndexedKnnClassifier(compactTree, K), test, exact);
+
+        start = System.nanoTime();
+        IvfIndex ivf = new IvfIndex(matrix, (int) Math.sqrt(matrix.getRows()), 1, 42);
+        double ivfBuild = millis(start);
+        for (int probes : PROBES) {
+            if (probes > ivf.getLists()) {
+                break;
+            }
+            ivf.setProbes(probes);
+            measure("IVF " + ivf.getLists() + "/" + probes, ivfBuild, new IndexedKnnClassifier(ivf, K), test, exact);
+        }
+    }
+
+    private static void measureBruteForce(String name, KnnClassifier classifier, List<BankMarketing> test) {
+        for (BankMarketing example : test) {
+            classifier.classifyTopK(example);
+        }
+        int hits = 0;
+        long start = System.nanoTime();
+        for (BankMarketing example : test) {
+            if (classifier.classifyTopK(example).equals(example.getTag())) {
+                hits++;
+            }
+        }
+        print(name, 0.0, start, test.size(), hits, 1.0);
+    }
+
+    private static void measure(String name, double build, IndexedKnnClassifier classifier,
+                                List<BankMarketing> test, List<Set<Integer>> exact) {
+        for (BankMarketing example : test) {
+            classifier.classify(example);
+        }
+        int hits = 0;
+        long start = System.nanoTime();
+        for (BankMarketing example : test) {
+            if (classifier.classify(example).equals(example.getTag())) {
+                hits++;
+            }
+        }
+        long end = System.nanoTime();
+
+        long found = 0;
+        for (int i = 0; i < test.size(); i++) {
+            Set<Integer> neighbours = indexes(classifier.search(test.get(i)));
+            neighbours.retainAll(exact.get(i));
+            found += neighbours.size();
+        }
+        print(name, build, start, end, test.size(), hits, (double) found / (test.size() * (long) K));
+    }
+
+    private static void print(String name, double build, long start, int queries, int hits, double recall) {
+        print(name, build, start, System.nanoTime(), queries, hits, recall);
+    }
+
+    private static void print(String name, double build, long start, long end, int queries, int hits,
+                              double recall) {
+        System.out.printf("%-16s %13.2f %12.2f %10.4f %10.4f%n", name, build, (end - start) / 1_000.0 / queries,
+                (double) hits / queries, recall);
+    }
+
+    private static Set<Integer> indexes(TopK topK) {
+        Set<Integer> indexes = new HashSet<>();
+        for (int i = 0; i < topK.size(); i++) {
+            indexes.add(topK.getIndex(i));
+        }
+        return indexes;
+    }
+
+    private static double millis(long start) {
+        return (System.nanoTime() - start) / 1_000_000.0;
+    }
+
+    /**
+     * Method that generates a synthetic data set with the attributes of the Bank Marketing data. The tag is more
+     * probably "yes" with a long duration of the call or a previous success, as in the real data
+     *
+     * @param count Number of examples
+     * @param seed  Seed of the random generator
+     * @return The examples
+     */
+    public static List<BankMarketing> generate(int count, long seed) {
+        Random random = new Random(seed);
+        List<BankMarketing> dataSet = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String[] data = new String[67];
+            for (int j = 0; j < data.length; j++) {
+                data[j] = "0";
+            }
+            for (int[] range : ONE_HOT) {
+                data[range[0] + random.nextInt(range[1] - range[0])] = "1";
+            }
+            data[0] = String.valueOf(18 + random.nextInt(80));
+            int duration = (int) Math.min(4000, -300 * Math.log(1 - random.nextDouble()));
+            data[53] = String.valueOf(duration);
+            data[54] = String.valueOf(1 + random.nextInt(10));
+            boolean contacted = random.nextInt(10) == 0;
+            data[55] = String.valueOf(contacted ? random.nextInt(30) : 999);
+            data[56] = contacted ? "0" : "1";
+            data[57] = String.valueOf(contacted ? 1 + random.nextInt(3) : 0);
+            data[61] = String.valueOf(-3.4f + random.nextInt(5));
+            data[62] = String.valueOf(92.2f + random.nextFloat() * 2.6f);
+            data[63] = String.valueOf(-50.8f + random.nextFloat() * 24f);
+            data[64] = String.valueOf(0.6f + random.nextFloat() * 4.5f);
+            data[65] = String.valueOf(4963.6f + random.nextInt(5) * 50f);
+            double yes = 0.05 + Math.min(0.6, duration / 2000.0) + ("1".equals(data[60]) ? 0.3 : 0.0);
+            data[66] = random.nextDouble() < yes ? "yes" : "no";
+            BankMarketing example = new BankMarketing();
+            try {
+                example.setData(data);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            dataSet.add(example);
+        }
+        return dataSet;
+    }
+
+}
@@ -0,0 +1,244 @@
+package mjw.java.concurrency.knn;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Train data of the Knn algorithm packed in a contiguous matrix. The attributes of all the examples are copied once
+ * into a single array in row-major order, so the classifiers don't call {@link Sample#getExample()} for every distance
+ * and the distances are calculated over consecutive memory.
+ * <p>
+ * In compact mode the columns whose values are all integers between -128 and 127, like the one-hot attributes of the
+ * Bank Marketing data, are stored as bytes and the rest as floats, and the distances are calculated directly over them.
+ * A Bank Marketing example takes 87 bytes instead of 528. The values that aren't exact as floats lose precision. The
+ * attributes are reordered, byte columns first, so the examples to classify must be converted with
+ * {@link #query(Sample)} and {@link #getValue(int, int)} uses the new order
+ *
+ * @author author
+ */
+public class SampleMatrix {
+
+    /**
+     * Values of the attributes in row-major order. Null in compact mode
+     */
+    private final double[] data;
+
+    /**
+     * Values of the attributes in compact mode, in row-major order. The columns are reordered: first the columns of
+     * byteColumns, stored in bytes, and then the ones of floatColumns, stored in floats
+     */
+    private final byte[] bytes;
+    private final float[] floats;
+    private final int[] byteColumns, floatColumns;
+
+    /**
+     * Tag or class of each example
+     */
+    private final String[] tags;
+
+    /**
+     * Number of examples and attributes
+     */
+    private final int rows, dims;
+
+    /**
+     * Kernel to calculate the distances
+     */
+    private final DistanceKernel kernel;
+
+    /**
+     * Constructor of the class. Packs the train data with the default kernel
+     *
+     * @param dataSet Train data
+     */
+    public SampleMatrix(List<? extends Sample> dataSet) {
+        this(dataSet, DistanceKernel.getDefault());
+    }
+
+    /**
+     * Constructor of the class. Packs the train data
+     *
+     * @param dataSet Train data
+     * @param kernel  Kernel to calculate the distances
+     */
+    public SampleMatrix(List<? extends Sample> dataSet, DistanceKernel kernel) {
+        this(dataSet, kernel, false);
+    }
+
+    /**
+     * Constructor of the class. Packs the train data with the default kernel
+     *
+     * @param dataSet Train data
+     * @param compact True to store the values as bytes and floats
+     */
+    public SampleMatrix(List<? extends Sample> dataSet, boolean compact) {
+        this(dataSet, DistanceKernel.getDefault(), compact);
+    }
+
+    /**
+     * Constructor of the class. Packs the train data
+     *
+     * @param dataSet Train data
+     * @param kernel  Kernel to calculate the distances
+     * @param compact True to store the values as bytes and floats
+     */
+    public SampleMatrix(List<? extends Sample> dataSet, DistanceKernel kernel, boolean compact) {
+        this.kernel = kernel;
+        rows = dataSet.size();
+        dims = rows == 0 ? 0 : dataSet.get(0).getExample().length;
+        tags = new String[rows];
+        if (!compact) {
+            data = new double[rows * dims];
+            bytes = null;
+            floats = null;
+            byteColumns = null;
+            floatColumns = null;
+            for (int i = 0; i < rows; i++) {
+                Sample sample = dataSet.get(i);
+                System.arraycopy(example(sample), 0, data, i * dims, dims);
+                tags[i] = sample.getTag();
+            }
+            return;
+        }
+
+        // First pass to find the columns that fit in a byte
+        boolean[] byteColumn = new boolean[dims];
+        Arrays.fill(byteColumn, true);
+        for (Sample sample : dataSet) {
+            double[] example = example(sample);
+            for (int d = 0; d < dims; d++) {
+                byteColumn[d] &= example[d] == (byte) example[d];
+            }
+        }
+        data = null;
+        byteColumns = IntStream.range(0, dims).filter(d -> byteColumn[d]).toArray();
+        floatColumns = IntStream.range(0, dims).filter(d -> !byteColumn[d]).toArray();
+        bytes = new byte[rows * byteColumns.length];
+        floats = new float[rows * floatColumns.length];
+        for (int i = 0; i < rows; i++) {
+            Sample sample = dataSet.get(i);
+            double[] example = example(sample);
+            for (int j = 0; j < byteColumns.length; j++) {
+                bytes[i * byteColumns.length + j] = (byte) example[byteColumns[j]];
+            }
+            for (int j = 0; j < floatColumns.length; j++) {
+                floats[i * floatColumns.length + j] = (float) example[floatColumns[j]];
+            }
+            tags[i] = sample.getTag();
+        }
+    }
+
+    private double[] example(Sample sample) {
+        double[] example = sample.getExample();
+        if (example.length != dims) {
+            throw new IllegalArgumentException("Vector doesn't have the same length");
+        }
+        return example;
+    }
+
+    /**
+     * Method that returns the attributes of an example to classify, checking that they can be compared with the train
+     * data
+     *
+     * @param example Example to classify
+     * @return The values of the attributes of the example
+     */
+    public double[] query(Sample example) {
+        double[] query = example(example);
+        if (data != null) {
+            return query;
+        }
+        double[] reordered = new double[dims];
+        for (int j = 0; j < byteColumns.length; j++) {
+            reordered[j] = query[byteColumns[j]];
+        }
+        for (int j = 0; j < floatColumns.length; j++) {
+            reordered[byteColumns.length + j] = query[floatColumns[j]];
+        }
+        return reordered;
+    }
+
+    /**
+     * Method that calculates the euclidean distance between an example of the train data and an example to classify
+     *
+     * @param row   Index of the train example
+     * @param query Attributes of the example to classify, as returned by {@link #query(Sample)}
+     * @return The euclidean distance
+     */
+    public double distance(int row, double[] query) {
+        return Math.sqrt(squaredDistance(row, query));
+    }
+
+    /**
+     * Method that calculates the squared euclidean distance. It's enough to compare distances
+     *
+     * @param row   Index of the train example
+     * @param query Attributes of the example to classify
+     * @return The squared euclidean distance
+     */
+    public double squaredDistance(int row, double[] query) {
+        if (data != null) {
+            return kernel.squaredDistance(data, row * dims, query, dims);
+        }
+        int byteDims = byteColumns.length, floatDims = floatColumns.length;
+        double sum = kernel.squaredDistance(bytes, row * byteDims, query, byteDims);
+        int offset = row * floatDims;
+        for (int j = 0; j < floatDims; j++) {
+            double d = query[byteDims + j] - floats[offset + j];
+            sum += d * d;
+        }
+        return sum;
+    }
+
+    /**
+     * Method that returns the value of an attribute of an example of the train data. In compact mode the attributes
+     * are in the order of the compact columns
+     *
+     * @param row Index of the train example
+     * @param dim Index of the attribute
+     * @return The value of the attribute
+     */
+    public double getValue(int row, int dim) {
+        if (data != null) {
+            return data[row * dims + dim];
+        }
+        if (dim < byteColumns.length) {
+            return bytes[row * byteColumns.length + dim];
+        }
+        return floats[row * floatColumns.length + dim - byteColumns.length];
+    }
+
+    public String getTag(int row) {
+        return tags[row];
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getDims() {
+        return dims;
+    }
+
+    public boolean isCompact() {
+        return data == null;
+    }
+
+    /**
+     * Method that returns the memory used by the values of the attributes
+     *
+     * @return The number of bytes of the arrays with the values
+     */
+    public long getValueBytes() {
+        if (data != null) {
+            return (long) data.length * Double.BYTES;
+        }
+        return bytes.length + (long) floats.length * Float.BYTES;
+    }
+
+    public DistanceKernel getKernel() {
+        return kernel;
+    }
+
+}
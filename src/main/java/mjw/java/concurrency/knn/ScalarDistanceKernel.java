@@ -0,0 +1,53 @@
+package mjw.java.concurrency.knn;
+
+/**
+ * Scalar implementation of the distance kernel. The loop is unrolled with four independent accumulators so the JIT can
+ * overlap the multiplications
+ *
+ * @author author
+ */
+public class ScalarDistanceKernel implements DistanceKernel {
+
+    @Override
+    public double squaredDistance(double[] matrix, int offset, double[] query, int dims) {
+        double s0 = 0.0d, s1 = 0.0d, s2 = 0.0d, s3 = 0.0d;
+        int i = 0;
+        for (; i + 3 < dims; i += 4) {
+            double d0 = matrix[offset + i] - query[i];
+            double d1 = matrix[offset + i + 1] - query[i + 1];
+            double d2 = matrix[offset + i + 2] - query[i + 2];
+            double d3 = matrix[offset + i + 3] - query[i + 3];
+            s0 += d0 * d0;
+            s1 += d1 * d1;
+            s2 += d2 * d2;
+            s3 += d3 * d3;
+        }
+        for (; i < dims; i++) {
+            double d = matrix[offset + i] - query[i];
+            s0 += d * d;
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    @Override
+    public double squaredDistance(byte[] matrix, int offset, double[] query, int dims) {
+        double s0 = 0.0d, s1 = 0.0d, s2 = 0.0d, s3 = 0.0d;
+        int i = 0;
+        for (; i + 3 < dims; i += 4) {
+            double d0 = matrix[offset + i] - query[i];
+            double d1 = matrix[offset + i + 1] - query[i + 1];
+            double d2 = matrix[offset + i + 2] - query[i + 2];
+            double d3 = matrix[offset + i + 3] - query[i + 3];
+            s0 += d0 * d0;
+            s1 += d1 * d1;
+            s2 += d2 * d2;
+            s3 += d3 * d3;
+        }
+        for (; i < dims; i++) {
+            double d = matrix[offset + i] - query[i];
+            s0 += d * d;
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+}
@@ -0,0 +1,153 @@
+package mjw.java.concurrency.knn;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bounded max-heap that keeps the k nearest examples of the train data seen so far, as primitive pairs of distance and
+ * index. Offering a distance is O(log k) and doesn't allocate, so it replaces the creation of a Distance object per
+ * train example and the sort of all of them. The pairs are ordered by distance and then by index, so the result is the
+ * same as the one of a stable sort of all the distances, no matter the order the distances are offered or how the
+ * heaps of several threads are merged
+ *
+ * @author author
+ */
+public class TopK {
+
+    private final int k;
+    private final double[] distances;
+    private final int[] indexes;
+    private int size;
+
+    /**
+     * Constructor of the class
+     *
+     * @param k Number of examples to keep
+     */
+    public TopK(int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive: " + k);
+        }
+        this.k = k;
+        distances = new double[k];
+        indexes = new int[k];
+    }
+
+    /**
+     * Method that offers an example to the heap. It's kept if it's nearer than the farthest example of the heap
+     *
+     * @param distance Distance between the train example and the example to classify
+     * @param index    Index of the train example
+     */
+    public void offer(double distance, int index) {
+        if (size < k) {
+            distances[size] = distance;
+            indexes[size] = index;
+            siftUp(size++);
+        } else if (greater(distances[0], indexes[0], distance, index)) {
+            distances[0] = distance;
+            indexes[0] = index;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Method that adds the examples of another heap to this one
+     *
+     * @param other The other heap
+     */
+    public void merge(TopK other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.distances[i], other.indexes[i]);
+        }
+    }
+
+    /**
+     * Method that returns the tag with more examples in the heap
+     *
+     * @param matrix Train data the indexes refer to
+     * @return The tag or class of the example to classify
+     */
+    public String majorityTag(SampleMatrix matrix) {
+        Map<String, Integer> results = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            results.merge(matrix.getTag(indexes[i]), 1, Integer::sum);
+        }
+        return Collections.max(results.entrySet(), Map.Entry.comparingByValue()).getKey();
+    }
+
+    /**
+     * Method that returns the distance of the farthest example of the heap, or infinity if it isn't full yet. Examples
+     * farther than it can be discarded
+     *
+     * @return The distance of the farthest example
+     */
+    public double worst() {
+        return size < k ? Double.POSITIVE_INFINITY : distances[0];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Method that returns the index of an example of the heap. The examples aren't sorted
+     *
+     * @param i Position in the heap
+     * @return The index of the train example
+     */
+    public int getIndex(int i) {
+        return indexes[i];
+    }
+
+    public double getDistance(int i) {
+        return distances[i];
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    private static boolean greater(double d1, int i1, double d2, int i2) {
+        return (d1 > d2) || ((d1 == d2) && (i1 > i2));
+    }
+
+    private void siftUp(int pos) {
+        double distance = distances[pos];
+        int index = indexes[pos];
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            if (!greater(distance, index, distances[parent], indexes[parent])) {
+                break;
+            }
+            distances[pos] = distances[parent];
+            indexes[pos] = indexes[parent];
+            pos = parent;
+        }
+        distances[pos] = distance;
+        indexes[pos] = index;
+    }
+
+    private void siftDown(int pos) {
+        double distance = distances[pos];
+        int index = indexes[pos];
+        int half = size >>> 1;
+        while (pos < half) {
+            int child = 2 * pos + 1;
+            int right = child + 1;
+            if ((right < size) && greater(distances[right], indexes[right], distances[child], indexes[child])) {
+                child = right;
+            }
+            if (!greater(distances[child], indexes[child], distance, index)) {
+                break;
+            }
+            distances[pos] = distances[child];
+            indexes[pos] = indexes[child];
+            pos = child;
+        }
+        distances[pos] = distance;
+        indexes[pos] = index;
+    }
+
+}
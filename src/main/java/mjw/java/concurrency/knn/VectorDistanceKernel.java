@@ -0,0 +1,69 @@
+package mjw.java.concurrency.knn;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Implementation of the distance kernel with the Vector API. It processes as many attributes per instruction as the
+ * SIMD registers of the CPU allow and the remaining attributes with a scalar loop. It's only used when the
+ * jdk.incubator.vector module is present
+ *
+ * @author author
+ */
+public class VectorDistanceKernel implements DistanceKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    /**
+     * Species of the bytes of the compact mode. Every load is widened to doubles in parts of SPECIES length, so it has at
+     * least as many lanes as SPECIES: 64 bits up to 8 double lanes and one byte per double lane in wider registers
+     */
+    private static final VectorSpecies<Byte> BYTE_SPECIES = VectorSpecies.of(byte.class,
+            VectorShape.forBitSize(Math.max(64, SPECIES.length() * Byte.SIZE)));
+
+    @Override
+    public double squaredDistance(double[] matrix, int offset, double[] query, int dims) {
+        DoubleVector acc = DoubleVector.zero(SPECIES);
+        int i = 0;
+        int bound = SPECIES.loopBound(dims);
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector a = DoubleVector.fromArray(SPECIES, matrix, offset + i);
+            DoubleVector b = DoubleVector.fromArray(SPECIES, query, i);
+            DoubleVector d = a.sub(b);
+            acc = d.fma(d, acc);
+        }
+        double sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < dims; i++) {
+            double d = matrix[offset + i] - query[i];
+            sum += d * d;
+        }
+        return sum;
+    }
+
+    @Override
+    public double squaredDistance(byte[] matrix, int offset, double[] query, int dims) {
+        DoubleVector acc = DoubleVector.zero(SPECIES);
+        int lanes = SPECIES.length();
+        int step = BYTE_SPECIES.length();
+        int i = 0;
+        for (; i + step <= dims; i += step) {
+            ByteVector bytes = ByteVector.fromArray(BYTE_SPECIES, matrix, offset + i);
+            for (int part = 0; part < step / lanes; part++) {
+                DoubleVector a = (DoubleVector) bytes.convertShape(VectorOperators.B2D, SPECIES, part);
+                DoubleVector b = DoubleVector.fromArray(SPECIES, query, i + part * lanes);
+                DoubleVector d = a.sub(b);
+                acc = d.fma(d, acc);
+            }
+        }
+        double sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < dims; i++) {
+            double d = matrix[offset + i] - query[i];
+            sum += d * d;
+        }
+        return sum;
+    }
+
+}
@@ -0,0 +1,77 @@
+package mjw.java.concurrency.server;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Task that adapts the executor of the server to the load. It's executed periodically and looks at the 99th percentile
+ * of the time the tasks have waited in the queue since its last execution:
+ * <ul>
+ *     <li>If it's over the target, the pool grows one thread. If the pool can't grow more, the executor starts to
+ *     reject the tasks when there are too many waiting</li>
+ *     <li>If it's under a quarter of the target, the executor accepts all the tasks again and the pool shrinks one
+ *     thread, without going under its initial size</li>
+ * </ul>
+ *
+ * @author author
+ */
+public class AdaptivePoolController implements Runnable {
+
+    /**
+     * Number of waiting tasks per thread allowed when the pool is overloaded
+     */
+    private static final int QUEUED_PER_THREAD = 4;
+
+    private final ServerExecutor executor;
+    private final ServerMetrics metrics;
+    private final long targetNanos;
+    private final int minThreads;
+    private final int maxThreads;
+
+    /**
+     * Constructor of the class
+     *
+     * @param executor     Executor to adapt
+     * @param metrics      Metrics of the server
+     * @param targetMillis Target of the 99th percentile of the queue wait
+     * @param minThreads   Minimum number of threads of the pool
+     * @param maxThreads   Maximum number of threads of the pool
+     */
+    public AdaptivePoolController(ServerExecutor executor, ServerMetrics metrics, long targetMillis, int minThreads,
+                                  int maxThreads) {
+        this.executor = executor;
+        this.metrics = metrics;
+        this.targetNanos = TimeUnit.MILLISECONDS.toNanos(targetMillis);
+        this.minThreads = minThreads;
+        this.maxThreads = maxThreads;
+    }
+
+    @Override
+    public void run() {
+        LatencyHistogram recent = metrics.getRecentQueueWait();
+        long count = recent.getCount();
+        long p99 = recent.getValueAtPercentile(99);
+        recent.reset();
+
+        int poolSize = executor.getCorePoolSize();
+        if ((count > 0) && (p99 > targetNanos)) {
+            if (poolSize < maxThreads) {
+                executor.resize(poolSize + 1);
+                Logger.sendMessage("Adaptive controller: queue wait p99 " + p99 / 1000 + " us, pool size "
+                        + (poolSize + 1));
+            } else if (executor.getAdmissionLimit() == Integer.MAX_VALUE) {
+                executor.setAdmissionLimit(poolSize * QUEUED_PER_THREAD);
+                Logger.sendMessage("Adaptive controller: queue wait p99 " + p99 / 1000
+                        + " us at maximum pool size, admission control on");
+            }
+        } else if (p99 <= targetNanos / 4) {
+            if (executor.getAdmissionLimit() != Integer.MAX_VALUE) {
+                executor.setAdmissionLimit(Integer.MAX_VALUE);
+                Logger.sendMessage("Adaptive controller: admission control off");
+            }
+            if (poolSize > minThreads) {
+                executor.resize(poolSize - 1);
+            }
+        }
+    }
+
+}
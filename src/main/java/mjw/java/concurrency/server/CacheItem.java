@@ -1,7 +1,5 @@
 package mjw.java.concurrency.server;
 
-import java.util.Date;
-
 /**
  * Class that stores the data of an element included in the cache
  *
@@ -20,14 +18,14 @@ public class CacheItem {
     private String response;
 
     /**
-     * Creation date of this item
+     * Creation time of this item, as returned by System.nanoTime()
      */
-    private Date creationDate;
+    private final long creationTime;
 
     /**
-     * Date when this item was last accessed
+     * Time when this item was last accessed, as returned by System.nanoTime()
      */
-    private Date accessDate;
+    private volatile long accessTime;
 
     /**
      * Constructor of the class
@@ -36,8 +34,8 @@ public class CacheItem {
      * @param response Response to that command
      */
     public CacheItem(String command, String response) {
-        creationDate = new Date();
-        accessDate = new Date();
+        creationTime = System.nanoTime();
+        accessTime = creationTime;
         this.command = command;
         this.response = response;
     }
@@ -50,16 +48,16 @@ public class CacheItem {
         return response;
     }
 
-    public Date getCreationDate() {
-        return creationDate;
+    public long getCreationTime() {
+        return creationTime;
     }
 
-    public Date getAccessDate() {
-        return accessDate;
+    public long getAccessTime() {
+        return accessTime;
     }
 
-    public void setAccessDate(Date accessDate) {
-        this.accessDate = accessDate;
+    public void setAccessTime(long accessTime) {
+        this.accessTime = accessTime;
     }
 
 }
@@ -1,10 +1,8 @@
 package mjw.java.concurrency.server;
 
-import java.util.concurrent.TimeUnit;
-
 /**
  * Task that cleans the cache of items that has not been accessed in the last minutes. Implements the Runnable
- * interface. It will be executed as a thread
+ * interface. The cache schedules it every ten seconds in the shared {@link TimingWheelScheduler}
  *
  * @author author
  */
@@ -29,14 +27,7 @@ public class CleanCacheTask implements Runnable {
      * Main method of the clean task
      */
     public void run() {
-        try {
-            while (!Thread.currentThread().interrupted()) {
-                TimeUnit.SECONDS.sleep(10);
-                cache.cleanCache();
-            }
-        } catch (InterruptedException e) {
-
-        }
+        cache.cleanCache();
     }
 
 }
@@ -1,9 +1,13 @@
 package mjw.java.concurrency.server;
 
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.net.ServerSocket;
 import java.net.Socket;
-import java.util.concurrent.Executors;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
@@ -18,18 +22,39 @@ public class ConcurrentServer {
     /**
      * Executor to execute the commands of the server
      */
-    private static ThreadPoolExecutor executor;
+    private static ServerExecutor executor;
+
+    /**
+     * Metrics of the executor and the commands
+     */
+    private static ServerMetrics metrics;
+
+    /**
+     * Periodic execution of the adaptive controller of the pool in the shared timer, used when the server is started
+     * in adaptive mode
+     */
+    private static ScheduledFuture<?> controllerTask;
 
     /**
      * Cache to get a better performance
      */
     private static ParallelCache cache;
 
+    /**
+     * Coalescer of the concurrent executions of the same command
+     */
+    private static RequestCoalescer coalescer;
+
     /**
      * Socket to read the requests of the clients
      */
     private static ServerSocket serverSocket;
 
+    /**
+     * Selector front end, used when the server is started in nio mode
+     */
+    private static SelectorServer selectorServer;
+
     /**
      * Attribute to control the status of the server
      */
@@ -38,30 +63,55 @@ public class ConcurrentServer {
     /**
      * Main method that implements the core functionality of the server
      *
-     * @param args Arguments
+     * @param args Arguments. With "nio", the server uses a selector with persistent connections instead of a blocking
+     *             socket with one connection per request. With "adaptive", the size of the pool follows the queue wait
+     *             of the tasks
      * @throws IOException
      * @throws InterruptedException
      */
     public static void main(String[] args) throws IOException, InterruptedException {
 
+        List<String> options = Arrays.asList(args);
         WDIDAO dao = WDIDAO.getDAO();
-        executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
-        cache = new ParallelCache();
+        int processors = Runtime.getRuntime().availableProcessors();
+        metrics = new ServerMetrics();
+        executor = new ServerExecutor(processors, metrics);
+        if (options.contains("adaptive")) {
+            AdaptivePoolController controller = new AdaptivePoolController(executor, metrics,
+                    Constants.TARGET_QUEUE_WAIT_MILLIS, processors, processors * Constants.MAX_THREADS_PER_CORE);
+            controllerTask = TimingWheelScheduler.getShared().scheduleWithFixedDelay(controller, 1, 1,
+                    TimeUnit.SECONDS);
+        }
+        cache = new ParallelCache(Constants.CACHE_MAX_SIZE);
+        coalescer = new RequestCoalescer();
         Logger.initializeLog();
 
         System.out.println("Initialization completed.");
 
-        serverSocket = new ServerSocket(Constants.CONCURRENT_PORT);
-
-        do {
-            try {
-                Socket clientSocket = serverSocket.accept();
-                RequestTask task = new RequestTask(clientSocket);
-                executor.execute(task);
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-        } while (!stopped);
+        if (options.contains("nio")) {
+            selectorServer = new SelectorServer(Constants.CONCURRENT_PORT, executor);
+            selectorServer.run();
+        } else {
+            serverSocket = new ServerSocket(Constants.CONCURRENT_PORT);
+
+            do {
+                try {
+                    Socket clientSocket = serverSocket.accept();
+                    RequestTask task = new RequestTask(clientSocket);
+                    try {
+                        executor.execute(task);
+                    } catch (RejectedExecutionException e) {
+                        try (PrintWriter out = new PrintWriter(clientSocket.getOutputStream(), true)) {
+                            out.println("ERROR;Server busy");
+                        } finally {
+                            clientSocket.close();
+                        }
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            } while (!stopped);
+        }
 
         executor.awaitTermination(1, TimeUnit.DAYS);
         System.out.println("Shutting down cache");
@@ -79,6 +129,15 @@ public class ConcurrentServer {
         return executor;
     }
 
+    /**
+     * Method that returns the metrics of the server
+     *
+     * @return The metrics
+     */
+    public static ServerMetrics getMetrics() {
+        return metrics;
+    }
+
     /**
      * Method that returns the cache
      *
@@ -88,6 +147,24 @@ public class ConcurrentServer {
         return cache;
     }
 
+    /**
+     * Method that returns the coalescer of the commands
+     *
+     * @return The coalescer
+     */
+    public static RequestCoalescer getCoalescer() {
+        return coalescer;
+    }
+
+    /**
+     * Method that returns the selector front end
+     *
+     * @return The selector front end, or null if the server uses the blocking socket
+     */
+    public static SelectorServer getSelectorServer() {
+        return selectorServer;
+    }
+
     /**
      * Methods that finish the execution of the server
      */
@@ -95,14 +172,22 @@ public class ConcurrentServer {
         stopped = true;
         System.out.println("Shutting down the server...");
         System.out.println("Shutting down executor");
+        if (controllerTask != null) {
+            controllerTask.cancel(false);
+        }
         executor.shutdown();
         System.out.println("Executor ok");
         System.out.println("Closing socket");
-        try {
-            serverSocket.close();
-            System.out.println("Socket ok");
-        } catch (IOException e) {
-            e.printStackTrace();
+        if (selectorServer != null) {
+            selectorServer.stop();
+            System.out.println("Selector ok");
+        } else {
+            try {
+                serverSocket.close();
+                System.out.println("Socket ok");
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
         }
 
         System.out.println("Shutting down logger");
@@ -51,9 +51,35 @@ public class ConcurrentStatusCommand extends Command {
         sb.append("Queue Size: ");
         sb.append(executor.getQueue().size());
         sb.append(";");
+        ParallelCache cache = ConcurrentServer.getCache();
         sb.append("Cache Size: ");
-        sb.append(ConcurrentServer.getCache().getItemCount());
+        sb.append(cache.getItemCount());
         sb.append(";");
+        sb.append("Cache Hits: ");
+        sb.append(cache.getHitCount());
+        sb.append(";");
+        sb.append("Cache Misses: ");
+        sb.append(cache.getMissCount());
+        sb.append(";");
+        sb.append("Cache Evictions: ");
+        sb.append(cache.getEvictionCount());
+        sb.append(";");
+        sb.append("Cache Expirations: ");
+        sb.append(cache.getExpirationCount());
+        sb.append(";");
+        sb.append("Coalesced Requests: ");
+        sb.append(ConcurrentServer.getCoalescer().getCoalescedCount());
+        sb.append(";");
+        sb.append("Dropped Log Messages: ");
+        sb.append(Logger.getDroppedCount());
+        sb.append(";");
+        ConcurrentServer.getMetrics().appendStatus(sb);
+        SelectorServer selectorServer = ConcurrentServer.getSelectorServer();
+        if (selectorServer != null) {
+            sb.append("Open Connections: ");
+            sb.append(selectorServer.getConnectionCount());
+            sb.append(";");
+        }
         Logger.sendMessage(sb.toString());
         return sb.toString();
     }
@@ -22,4 +22,19 @@ public class Constants {
      */
     public static final String DATA_ROUTE = "data\\WDI_Data.csv";
 
+    /**
+     * Maximum number of responses stored in the cache of the concurrent server
+     */
+    public static final int CACHE_MAX_SIZE = 10_000;
+
+    /**
+     * Target of the 99th percentile of the time a task waits in the queue, used by the adaptive controller of the pool
+     */
+    public static final long TARGET_QUEUE_WAIT_MILLIS = 20;
+
+    /**
+     * Maximum number of threads per core the adaptive controller can create
+     */
+    public static final int MAX_THREADS_PER_CORE = 4;
+
 }
@@ -0,0 +1,263 @@
+package mjw.java.concurrency.server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Client that generates load against the serial or the concurrent server and reports the latency and the throughput.
+ * The options are passed as key=value arguments:
+ * <ul>
+ *     <li>target: serial, concurrent or nio. With nio every thread keeps a persistent connection. Default concurrent</li>
+ *     <li>threads: number of client threads. Default 16</li>
+ *     <li>seconds: duration of the measure, after a warmup of a fifth of it. Default 30</li>
+ *     <li>rate: requests per second of all the threads. With 0 every thread sends a new request as soon as it gets the
+ *     response (closed loop). Otherwise the requests are sent on a fixed schedule (open loop) and the latency is
+ *     measured from the time the request should have been sent, so a slow server can't hide its queueing. Default 0</li>
+ *     <li>mix: percentage of queries, reports and status commands. Default 80:15:5. The serial server has no status
+ *     command, so with target serial the status percentage is ignored</li>
+ *     <li>data: path of the WDI file the codes of the requests are taken from. Default the file of the server</li>
+ * </ul>
+ *
+ * @author author
+ */
+public class LoadGenerator {
+
+    private static final String[] TYPE_NAMES = {"Query", "Report", "Status"};
+    private static final int STATUS = 2;
+
+    /**
+     * Prefix of the response of the servers to a command they don't support
+     */
+    private static final String UNKNOWN_COMMAND = "Unknown command";
+
+    private final String host = "localhost";
+    private final int port;
+    private final boolean persistent;
+    private final int threads;
+    private final long durationNanos;
+    private final long warmupNanos;
+    private final double rate;
+    private final int[] mix;
+
+    private final String[] countries;
+    private final String[] indicators;
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[TYPE_NAMES.length];
+    private final LatencyHistogram total = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+
+    /**
+     * Number of requests scheduled in open loop mode
+     */
+    private final AtomicLong sequence = new AtomicLong();
+
+    private volatile boolean recording;
+    private volatile boolean finished;
+
+    public LoadGenerator(Map<String, String> options) {
+        String target = options.getOrDefault("target", "concurrent");
+        port = target.equals("serial") ? Constants.SERIAL_PORT : Constants.CONCURRENT_PORT;
+        persistent = target.equals("nio");
+        threads = Integer.parseInt(options.getOrDefault("threads", "16"));
+        long seconds = Long.parseLong(options.getOrDefault("seconds", "30"));
+        durationNanos = TimeUnit.SECONDS.toNanos(seconds);
+        warmupNanos = durationNanos / 5;
+        rate = Double.parseDouble(options.getOrDefault("rate", "0"));
+
+        String[] parts = options.getOrDefault("mix", "80:15:5").split(":");
+        mix = new int[TYPE_NAMES.length];
+        for (int i = 0; i < mix.length; i++) {
+            int weight = (i < parts.length) ? Integer.parseInt(parts[i]) : 0;
+            if ((i == STATUS) && target.equals("serial")) {
+                weight = 0;
+            }
+            mix[i] = (i == 0 ? 0 : mix[i - 1]) + weight;
+        }
+
+        List<WDI> data = WDISnapshot.loadOrCreate(options.getOrDefault("data", Constants.DATA_ROUTE));
+        if (data.isEmpty()) {
+            throw new IllegalArgumentException("No data to build the requests");
+        }
+        countries = data.stream().map(WDI::getCountryCode).distinct().toArray(String[]::new);
+        indicators = data.stream().map(WDI::getIndicatorCode).distinct().toArray(String[]::new);
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int index = arg.indexOf('=');
+            if (index > 0) {
+                options.put(arg.substring(0, index), arg.substring(index + 1));
+            }
+        }
+        new LoadGenerator(options).run();
+    }
+
+    /**
+     * Method that executes the load test and prints the results
+     */
+    public void run() throws InterruptedException {
+        List<Thread> workers = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < threads; i++) {
+            Thread thread = new Thread(() -> work(start), "load-" + i);
+            workers.add(thread);
+            thread.start();
+        }
+
+        TimeUnit.NANOSECONDS.sleep(warmupNanos);
+        recording = true;
+        long measureStart = System.nanoTime();
+        TimeUnit.NANOSECONDS.sleep(durationNanos);
+        recording = false;
+        long elapsed = System.nanoTime() - measureStart;
+        finished = true;
+        for (Thread worker : workers) {
+            worker.join(TimeUnit.SECONDS.toMillis(10));
+        }
+
+        double seconds = elapsed / (double) TimeUnit.SECONDS.toNanos(1);
+        System.out.printf("Port %d, %d threads, %s, %.0f s%n", port, threads,
+                rate > 0 ? "open loop at " + rate + " req/s" : "closed loop", seconds);
+        System.out.printf("Requests: %d, errors: %d, throughput: %.1f req/s%n", total.getCount(), errors.sum(),
+                total.getCount() / seconds);
+        System.out.println("Type          count      p50 (us)    p99 (us)   p999 (us)    max (us)");
+        print("All", total);
+        for (int i = 0; i < histograms.length; i++) {
+            if (histograms[i].getCount() > 0) {
+                print(TYPE_NAMES[i], histograms[i]);
+            }
+        }
+    }
+
+    private void print(String name, LatencyHistogram histogram) {
+        System.out.printf("%-8s %10d %13d %11d %11d %11d%n", name, histogram.getCount(),
+                micros(histogram.getValueAtPercentile(50)), micros(histogram.getValueAtPercentile(99)),
+                micros(histogram.getValueAtPercentile(99.9)), micros(histogram.getMax()));
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    /**
+     * Main loop of a client thread
+     */
+    private void work(long start) {
+        long interval = rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / rate) : 0;
+        Connection connection = null;
+        while (!finished) {
+            long intended;
+            if (interval > 0) {
+                intended = start + sequence.getAndIncrement() * interval;
+                long delay;
+                while (((delay = intended - System.nanoTime()) > 0) && !finished) {
+                    LockSupport.parkNanos(delay);
+                }
+            } else {
+                intended = System.nanoTime();
+            }
+
+            int type = nextType();
+            String request = request(type);
+            try {
+                if (!persistent) {
+                    connection = new Connection(host, port);
+                } else if (connection == null) {
+                    connection = new Connection(host, port);
+                }
+                String response = connection.send(request);
+                if ((response == null) || response.startsWith("ERROR") || response.startsWith(UNKNOWN_COMMAND)) {
+                    errors.increment();
+                }
+            } catch (IOException e) {
+                errors.increment();
+                connection = null;
+            } finally {
+                if (!persistent && (connection != null)) {
+                    connection.close();
+                    connection = null;
+                }
+            }
+
+            long latency = System.nanoTime() - intended;
+            if (recording) {
+                histograms[type].record(latency);
+                total.record(latency);
+            }
+        }
+        if (connection != null) {
+            connection.close();
+        }
+    }
+
+    private int nextType() {
+        int value = ThreadLocalRandom.current().nextInt(Math.max(1, mix[mix.length - 1]));
+        for (int i = 0; i < mix.length; i++) {
+            if (value < mix[i]) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    private String request(int type) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String indicator = indicators[random.nextInt(indicators.length)];
+        return switch (type) {
+            case 0 -> {
+                String country = countries[random.nextInt(countries.length)];
+                yield random.nextBoolean() ? "q;" + country + ";" + indicator
+                        : "q;" + country + ";" + indicator + ";" + (WDI.FIRST_YEAR + random.nextInt(55));
+            }
+            case 1 -> "r;" + indicator;
+            default -> "s";
+        };
+    }
+
+    /**
+     * Connection with the server
+     */
+    private static class Connection {
+
+        private final Socket socket;
+        private final PrintWriter out;
+        private final BufferedReader in;
+
+        private Connection(String host, int port) throws IOException {
+            socket = new Socket(host, port);
+            socket.setTcpNoDelay(true);
+            out = new PrintWriter(socket.getOutputStream(), true);
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+        }
+
+        private String send(String request) throws IOException {
+            out.println(request);
+            return in.readLine();
+        }
+
+        private void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+}
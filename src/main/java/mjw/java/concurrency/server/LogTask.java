@@ -1,10 +1,9 @@
 package mjw.java.concurrency.server;
 
-import java.util.concurrent.TimeUnit;
-
 /**
- * Task that writes all the messages in the log file every ten seconds. It implements the Runnable interface. It will be
- * executed as a thread
+ * Task that writes the messages in the log file in batches. A batch is written when it's full or when its first
+ * message has waited one second. When the log shuts down, it writes the pending messages and closes the file. It
+ * implements the Runnable interface. It will be executed as a thread
  *
  * @author author
  */
@@ -16,13 +15,15 @@ public class LogTask implements Runnable {
      */
     public void run() {
         try {
-            while (Thread.currentThread().interrupted()) {
-                TimeUnit.SECONDS.sleep(10);
-                Logger.writeLogs();
+            while (Logger.isRunning()) {
+                Logger.writeBatch();
             }
         } catch (InterruptedException e) {
         }
+        // Shutdown doesn't interrupt this thread, but a pending interruption would close the channel in the next write
+        Thread.interrupted();
         Logger.writeLogs();
+        Logger.closeLog();
     }
 
 }
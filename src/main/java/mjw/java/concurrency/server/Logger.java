@@ -1,32 +1,108 @@
 package mjw.java.concurrency.server;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
-import java.util.Date;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * Class that implements a concurrent logger system
+ * Class that implements a concurrent logger system. The threads of the server put the messages in a bounded queue and
+ * never block: if the queue is full the message is dropped and counted. A single thread takes the messages in batches
+ * and writes each batch with one write to a file channel that stays open while the server is running
  *
  * @author author
  */
 public class Logger {
 
+    /**
+     * Maximum number of messages waiting to be written
+     */
+    private static final int CAPACITY = 8192;
+
+    /**
+     * Maximum number of messages written in one batch
+     */
+    private static final int BATCH_SIZE = 512;
+
+    /**
+     * Maximum time a message waits for its batch to be completed before it's written
+     */
+    private static final long MAX_DELAY_MILLIS = 1000;
+
+    /**
+     * Same format as Date.toString(), which was the format of the log
+     */
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter
+            .ofPattern("EEE MMM dd HH:mm:ss zzz yyyy", Locale.US)
+            .withZone(ZoneId.systemDefault());
+
+    /**
+     * Message of the log with the time it was sent
+     */
+    private record Entry(long time, String message) {
+    }
+
+    /**
+     * Entry put in the queue by shutdown to wake up the writer thread. It's never written
+     */
+    private static final Entry STOP = new Entry(0, null);
+
+    /**
+     * False when the log is shutting down. The writer thread isn't interrupted, because an interruption during a
+     * write would close the file channel and the pending messages would be lost
+     */
+    private static volatile boolean running = true;
+
     /**
      * Queue to store the log messages
      */
-    private static ConcurrentLinkedQueue<String> logQueue = new ConcurrentLinkedQueue<String>();
+    private static final ArrayBlockingQueue<Entry> logQueue = new ArrayBlockingQueue<>(CAPACITY);
+
+    /**
+     * Number of messages dropped because the queue was full. Only the writer thread resets it
+     */
+    private static final LongAdder dropped = new LongAdder();
+
+    /**
+     * Total number of dropped messages
+     */
+    private static final LongAdder totalDropped = new LongAdder();
 
     /**
      * Thread to execute the Log Task
      */
     private static Thread thread;
 
+    /**
+     * Channel of the log file. Only used by the writer thread once the log is initialized
+     */
+    private static FileChannel channel;
+
+    /**
+     * Messages of the batch being written. Only used by the writer thread
+     */
+    private static final List<Entry> batch = new ArrayList<>(BATCH_SIZE);
+    private static final StringBuilder buffer = new StringBuilder(BATCH_SIZE * 128);
+
+    /**
+     * Last formatted second. Only used by the writer thread
+     */
+    private static long formattedSecond = Long.MIN_VALUE;
+    private static String formattedTime;
+
     /**
      * Route to the file where we will write the log
      */
@@ -37,55 +113,158 @@ public class Logger {
      */
     static {
         LogTask task = new LogTask();
-        thread = new Thread(task);
+        thread = new Thread(task, "logger");
     }
 
     /**
-     * Method that write a message in the log
+     * Method that write a message in the log. If the log is full, the message is dropped
      *
      * @param message Message to write in the log
      */
     public static void sendMessage(String message) {
-        logQueue.offer(new Date() + ": " + message);
+        if (!logQueue.offer(new Entry(System.currentTimeMillis(), message))) {
+            dropped.increment();
+            totalDropped.increment();
+        }
+    }
+
+    /**
+     * Method that waits until a batch of messages is completed, or the first message of the batch has waited too much,
+     * and writes it to the file
+     *
+     * @throws InterruptedException If the thread is interrupted while waiting
+     */
+    static void writeBatch() throws InterruptedException {
+        Entry first = logQueue.poll(MAX_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        if ((first == null) || (first == STOP)) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MAX_DELAY_MILLIS);
+        while (batch.size() < BATCH_SIZE) {
+            logQueue.drainTo(batch, BATCH_SIZE - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if ((batch.size() >= BATCH_SIZE) || (remaining <= 0)) {
+                break;
+            }
+            Entry entry = logQueue.poll(remaining, TimeUnit.NANOSECONDS);
+            if ((entry == null) || (entry == STOP)) {
+                break;
+            }
+            batch.add(entry);
+        }
+        write();
     }
 
     /**
      * Method that write all the messages in the queue to the file
      */
     public static void writeLogs() {
-        String message;
-        Path path = Paths.get(LOG_FILE);
-        try (BufferedWriter fileWriter = Files.newBufferedWriter(path, StandardOpenOption.CREATE,
-                StandardOpenOption.APPEND)) {
-            while ((message = logQueue.poll()) != null) {
-                fileWriter.write(new Date() + ": " + message);
-                fileWriter.newLine();
+        // The batch may keep the messages taken before an interruption
+        while ((logQueue.drainTo(batch, BATCH_SIZE) > 0) || !batch.isEmpty()) {
+            write();
+        }
+    }
+
+    /**
+     * Method that writes the messages of the batch with a single write
+     */
+    private static void write() {
+        long lost = dropped.sumThenReset();
+        if (lost > 0) {
+            append(System.currentTimeMillis(), lost + " messages were dropped because the log was full");
+        }
+        for (Entry entry : batch) {
+            if (entry != STOP) {
+                append(entry.time(), entry.message());
+            }
+        }
+        batch.clear();
+
+        ByteBuffer bytes = ByteBuffer.wrap(buffer.toString().getBytes(StandardCharsets.UTF_8));
+        buffer.setLength(0);
+        if (channel == null) {
+            return;
+        }
+        try {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
             }
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    private static void append(long time, String message) {
+        long second = time / 1000;
+        if (second != formattedSecond) {
+            formattedSecond = second;
+            formattedTime = FORMATTER.format(Instant.ofEpochMilli(time));
+        }
+        buffer.append(formattedTime).append(": ").append(message).append(System.lineSeparator());
+    }
+
     /**
      * Method that clean the file
      */
     public static void initializeLog() {
         Path path = Paths.get(LOG_FILE);
-        if (Files.exists(path)) {
-            try (OutputStream out = Files.newOutputStream(path,
-                    StandardOpenOption.TRUNCATE_EXISTING)) {
-
-            } catch (IOException e) {
-                e.printStackTrace();
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
             }
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            e.printStackTrace();
         }
         thread.start();
     }
 
     /**
-     * Method that stops the execution of the log system
+     * Method that closes the file of the log. It's called by the writer thread when it ends
+     */
+    static void closeLog() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.force(false);
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Method that returns the number of messages dropped because the log was full
+     *
+     * @return The number of dropped messages
+     */
+    public static long getDroppedCount() {
+        return totalDropped.sum();
+    }
+
+    /**
+     * Method that returns if the writer thread has to keep waiting for messages
+     *
+     * @return False when the log is shutting down
+     */
+    static boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Method that stops the execution of the log system. It waits until the pending messages are written
      */
     public static void shutdown() {
-        thread.interrupt();
+        running = false;
+        // If the queue is full the writer isn't waiting, it will see the flag after this batch
+        logQueue.offer(STOP);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 }
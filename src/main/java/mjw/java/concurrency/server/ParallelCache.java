@@ -1,30 +1,53 @@
 package mjw.java.concurrency.server;
 
-import java.util.Date;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * Class that implements the core of the cache system
+ * Class that implements the core of the cache system. It has two modes:
+ * <ul>
+ *     <li>Unbounded: the items are stored in a ConcurrentHashMap and a task of the shared timer removes every ten
+ *     seconds the items that have not been accessed in the last minutes</li>
+ *     <li>Bounded: the items are stored in segments with LRU order. When a segment is full, its least recently used item
+ *     is evicted. Expired items are removed when they are accessed, so no thread has to sweep the whole cache</li>
+ * </ul>
  *
  * @author author
  */
 public class ParallelCache {
 
     /**
-     * Hashmap to store the items of the cache
+     * Hashmap to store the items of the cache in unbounded mode
      */
     private final ConcurrentHashMap<String, CacheItem> cache;
 
+    /**
+     * Segments to store the items of the cache in bounded mode
+     */
+    private final Segment[] segments;
+
     /**
      * Task to clean the cache
      */
     private final CleanCacheTask task;
 
     /**
-     * Thread to execute the clean task
+     * Periodic execution of the clean task in the shared timer. Only used in unbounded mode
      */
-    private final Thread thread;
+    private final ScheduledFuture<?> cleaner;
+
+    /**
+     * Counters of the cache
+     */
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
 
     /**
      * Max living time millis
@@ -32,13 +55,32 @@ public class ParallelCache {
     public static int MAX_LIVING_TIME_MILLIS = 600_000;
 
     /**
-     * Constructor of the class
+     * Constructor of the class. Creates an unbounded cache
      */
     public ParallelCache() {
         cache = new ConcurrentHashMap<>();
+        segments = null;
         task = new CleanCacheTask(this);
-        thread = new Thread(task);
-        thread.start();
+        cleaner = TimingWheelScheduler.getShared().scheduleWithFixedDelay(task, 10, 10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Constructor of the class. Creates a cache that never stores more than maxSize items
+     *
+     * @param maxSize Maximum number of items in the cache
+     */
+    public ParallelCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("The size of the cache must be positive: " + maxSize);
+        }
+        cache = null;
+        int count = Math.min(16, Integer.highestOneBit(maxSize));
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(maxSize / count + (i < maxSize % count ? 1 : 0));
+        }
+        task = null;
+        cleaner = null;
     }
 
     /**
@@ -49,8 +91,14 @@ public class ParallelCache {
      */
     public void put(String command, String response) {
         CacheItem item = new CacheItem(command, response);
-        cache.put(command, item);
-
+        if (segments == null) {
+            cache.put(command, item);
+        } else {
+            Segment segment = segmentFor(command);
+            synchronized (segment) {
+                segment.put(command, item);
+            }
+        }
     }
 
     /**
@@ -60,31 +108,83 @@ public class ParallelCache {
      * @return Response of that command
      */
     public String get(String command) {
-        CacheItem item = cache.get(command);
+        CacheItem item;
+        Segment segment = null;
+        if (segments == null) {
+            item = cache.get(command);
+        } else {
+            segment = segmentFor(command);
+            synchronized (segment) {
+                item = segment.get(command);
+            }
+        }
+
         if (item == null) {
+            misses.increment();
+            return null;
+        }
+
+        long now = System.nanoTime();
+        if (isExpired(item, now)) {
+            if (segment == null) {
+                cache.remove(command, item);
+            } else {
+                synchronized (segment) {
+                    segment.remove(command, item);
+                }
+            }
+            expirations.increment();
+            misses.increment();
             return null;
         }
-        item.setAccessDate(new Date());
+
+        item.setAccessTime(now);
+        hits.increment();
         return item.getResponse();
     }
 
+    /**
+     * Method that removes the items that have not been accessed in the last minutes
+     */
     public void cleanCache() {
-        Date revisionDate = new Date();
-        Iterator<CacheItem> iterator = cache.values().iterator();
+        long now = System.nanoTime();
+        if (segments == null) {
+            clean(cache.values().iterator(), now);
+        } else {
+            for (Segment segment : segments) {
+                synchronized (segment) {
+                    clean(segment.values().iterator(), now);
+                }
+            }
+        }
+    }
 
+    private void clean(Iterator<CacheItem> iterator, long now) {
         while (iterator.hasNext()) {
             CacheItem item = iterator.next();
-            if (revisionDate.getTime() - item.getAccessDate().getTime() > MAX_LIVING_TIME_MILLIS) {
+            if (isExpired(item, now)) {
                 iterator.remove();
+                expirations.increment();
             }
         }
     }
 
+    private boolean isExpired(CacheItem item, long now) {
+        return now - item.getAccessTime() > TimeUnit.MILLISECONDS.toNanos(MAX_LIVING_TIME_MILLIS);
+    }
+
+    private Segment segmentFor(String command) {
+        int h = command.hashCode();
+        return segments[(h ^ (h >>> 16)) & (segments.length - 1)];
+    }
+
     /**
      * Method that shutdown the cache
      */
     public void shutdown() {
-        thread.interrupt();
+        if (cleaner != null) {
+            cleaner.cancel(false);
+        }
     }
 
     /**
@@ -93,7 +193,57 @@ public class ParallelCache {
      * @return The number of items in the cache
      */
     public int getItemCount() {
-        return cache.size();
+        if (segments == null) {
+            return cache.size();
+        }
+        int count = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                count += segment.size();
+            }
+        }
+        return count;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public long getExpirationCount() {
+        return expirations.sum();
+    }
+
+    /**
+     * Segment of the bounded cache. It keeps its items in access order and evicts the least recently used one when it's
+     * full. It must be accessed holding its lock
+     */
+    private class Segment extends LinkedHashMap<String, CacheItem> {
+
+        private static final long serialVersionUID = 6629793009806961167L;
+
+        private final int capacity;
+
+        private Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CacheItem> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
     }
 
 }
@@ -0,0 +1,75 @@
+package mjw.java.concurrency.server;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Class that coalesces concurrent executions of the same command. The first thread that asks for a command executes it
+ * and the threads that ask for the same command while it's running wait for its result instead of executing it again.
+ * This avoids that a lot of clients asking for the same expensive report at the same time compute it in parallel when
+ * it's not in the cache
+ *
+ * @author author
+ */
+public class RequestCoalescer {
+
+    /**
+     * Commands that are being executed
+     */
+    private final ConcurrentHashMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Number of requests that were served with the result of another execution
+     */
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Method that executes a command or waits for the execution of the same command that is running
+     *
+     * @param key      Command line that identifies the execution
+     * @param supplier Function that executes the command. It should store the result in the cache, so the requests
+     *                 that arrive after the execution ends find it there
+     * @return The response to the command
+     */
+    public String execute(String key, Supplier<String> supplier) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        CompletableFuture<String> running = inFlight.putIfAbsent(key, future);
+        if (running != null) {
+            coalesced.increment();
+            return running.join();
+        }
+
+        try {
+            String ret = supplier.get();
+            future.complete(ret);
+            return ret;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * Method that returns the number of requests that didn't execute their command because another thread was
+     * executing it
+     *
+     * @return The number of coalesced requests
+     */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Method that returns the number of commands that are being executed
+     *
+     * @return The number of commands in flight
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+}
@@ -40,45 +40,7 @@ public class RequestTask implements Runnable {
 
             String line = in.readLine();
 
-            Logger.sendMessage(line);
-            ParallelCache cache = ConcurrentServer.getCache();
-            String ret = cache.get(line);
-
-            if (ret == null) {
-                Command command;
-
-                String[] commandData = line.split(";");
-                System.err.println("Command: " + commandData[0]);
-                switch (commandData[0]) {
-                    case "q" -> {
-                        System.err.println("Query");
-                        command = new ConcurrentQueryCommand(commandData);
-                    }
-                    case "r" -> {
-                        System.err.println("Report");
-                        command = new ConcurrentReportCommand(commandData);
-                    }
-                    case "s" -> {
-                        System.err.println("Status");
-                        command = new ConcurrentStatusCommand(commandData);
-                    }
-                    case "z" -> {
-                        System.err.println("Stop");
-                        command = new ConcurrentStopCommand(commandData);
-                    }
-                    default -> {
-                        System.err.println("Error");
-                        command = new ConcurrentErrorCommand(commandData);
-                    }
-                }
-                ret = command.execute();
-                if (command.isCacheable()) {
-                    cache.put(line, ret);
-                }
-            } else {
-                Logger.sendMessage("Command " + line + " was found in the cache");
-            }
-
+            String ret = process(line);
             System.err.println(ret);
             out.println(ret);
         } catch (Exception e) {
@@ -92,4 +54,61 @@ public class RequestTask implements Runnable {
         }
     }
 
+    /**
+     * Method that executes a command line, using the cache of the server when it is possible. Concurrent misses of the
+     * same cacheable command share a single execution. It's shared by the blocking and the selector front ends of the
+     * server
+     *
+     * @param line Line with the command and its parameters
+     * @return The response to the command
+     */
+    static String process(String line) {
+        long start = System.nanoTime();
+        Logger.sendMessage(line);
+        ParallelCache cache = ConcurrentServer.getCache();
+        String ret = cache.get(line);
+
+        if (ret == null) {
+            Command command;
+
+            String[] commandData = line.split(";");
+            System.err.println("Command: " + commandData[0]);
+            switch (commandData[0]) {
+                case "q" -> {
+                    System.err.println("Query");
+                    command = new ConcurrentQueryCommand(commandData);
+                }
+                case "r" -> {
+                    System.err.println("Report");
+                    command = new ConcurrentReportCommand(commandData);
+                }
+                case "s" -> {
+                    System.err.println("Status");
+                    command = new ConcurrentStatusCommand(commandData);
+                }
+                case "z" -> {
+                    System.err.println("Stop");
+                    command = new ConcurrentStopCommand(commandData);
+                }
+                default -> {
+                    System.err.println("Error");
+                    command = new ConcurrentErrorCommand(commandData);
+                }
+            }
+            if (command.isCacheable()) {
+                ret = ConcurrentServer.getCoalescer().execute(line, () -> {
+                    String response = command.execute();
+                    cache.put(line, response);
+                    return response;
+                });
+            } else {
+                ret = command.execute();
+            }
+        } else {
+            Logger.sendMessage("Command " + line + " was found in the cache");
+        }
+        ConcurrentServer.getMetrics().recordCommand(line, System.nanoTime() - start);
+        return ret;
+    }
+
 }
@@ -0,0 +1,375 @@
+package mjw.java.concurrency.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Front end of the concurrent server based on a {@link Selector}. A single thread accepts the connections and does all
+ * the network I/O, so a slow client doesn't hold a thread of the executor. The connections are persistent: a client can
+ * send several commands, one per line, without waiting for the responses, and it receives the responses in the same
+ * order. The commands of a connection are executed one after the other by the executor of the server, and the commands
+ * of different connections in parallel
+ *
+ * @author author
+ */
+public class SelectorServer implements Runnable {
+
+    /**
+     * Maximum length of a command line. Longer lines close the connection
+     */
+    private static final int MAX_LINE_LENGTH = 8192;
+
+    /**
+     * Maximum number of commands of a connection waiting to be executed. When a connection reaches it, or it reaches
+     * MAX_OUTBOUND_BYTES, the server stops reading from it until its backlog falls below the low-water marks, so a client
+     * that sends commands without reading the responses can't make the server buffer them without limit
+     */
+    private static final int MAX_PENDING_COMMANDS = 256;
+
+    /**
+     * Maximum number of bytes of the responses of a connection waiting to be written
+     */
+    private static final long MAX_OUTBOUND_BYTES = 256 * 1024;
+
+    /**
+     * Low-water marks to resume reading from a paused connection
+     */
+    private static final int LOW_PENDING_COMMANDS = MAX_PENDING_COMMANDS / 4;
+    private static final long LOW_OUTBOUND_BYTES = MAX_OUTBOUND_BYTES / 4;
+
+    /**
+     * Selector that multiplexes all the connections
+     */
+    private final Selector selector;
+
+    /**
+     * Channel that accepts the connections of the clients
+     */
+    private final ServerSocketChannel serverChannel;
+
+    /**
+     * Executor to execute the commands
+     */
+    private final Executor executor;
+
+    /**
+     * Connections with new responses to write. The executor threads add them and the selector thread registers the
+     * interest in writing
+     */
+    private final ConcurrentLinkedQueue<Connection> writeRequests = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Buffer to read from the channels. Only used by the selector thread
+     */
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(16 * 1024);
+
+    /**
+     * Number of open connections
+     */
+    private final AtomicInteger connections = new AtomicInteger();
+
+    /**
+     * Attribute to control the status of the server
+     */
+    private volatile boolean stopped = false;
+
+    /**
+     * Constructor of the class
+     *
+     * @param port     Port where the server will be hearing
+     * @param executor Executor to execute the commands
+     * @throws IOException If the port can't be opened
+     */
+    public SelectorServer(int port, Executor executor) throws IOException {
+        this.executor = executor;
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port), 1024);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * Main loop of the selector thread. It ends when the server is stopped
+     */
+    @Override
+    public void run() {
+        while (!stopped) {
+            try {
+                selector.select();
+                Connection connection;
+                while ((connection = writeRequests.poll()) != null) {
+                    if (connection.key.isValid()) {
+                        connection.key.interestOps(connection.key.interestOps() | SelectionKey.OP_WRITE);
+                    }
+                }
+
+                Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    SelectionKey key = iterator.next();
+                    iterator.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Connection conn = (Connection) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            read(conn);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            write(conn);
+                        }
+                    } catch (IOException e) {
+                        close(conn);
+                    }
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        try {
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+            selector.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Method that accepts all the pending connections
+     */
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            key.attach(new Connection(channel, key));
+            connections.incrementAndGet();
+        }
+    }
+
+    /**
+     * Method that reads the available data of a connection and queues the complete lines as commands
+     */
+    private void read(Connection conn) throws IOException {
+        readBuffer.clear();
+        int read = conn.channel.read(readBuffer);
+        if (read == -1) {
+            conn.inputClosed = true;
+            conn.key.interestOps(conn.key.interestOps() & ~SelectionKey.OP_READ);
+            closeIfDone(conn);
+            return;
+        }
+        readBuffer.flip();
+
+        boolean queued = false;
+        while (readBuffer.hasRemaining()) {
+            byte b = readBuffer.get();
+            if (b == '\n') {
+                int length = conn.lineLength;
+                if (length > 0 && conn.line[length - 1] == '\r') {
+                    length--;
+                }
+                conn.pendingCommands.incrementAndGet();
+                conn.pending.offer(new String(conn.line, 0, length, StandardCharsets.UTF_8));
+                conn.lineLength = 0;
+                queued = true;
+            } else {
+                if (conn.lineLength == MAX_LINE_LENGTH) {
+                    close(conn);
+                    return;
+                }
+                if (conn.lineLength == conn.line.length) {
+                    conn.line = Arrays.copyOf(conn.line, Math.min(conn.line.length * 2, MAX_LINE_LENGTH));
+                }
+                conn.line[conn.lineLength++] = b;
+            }
+        }
+
+        // the lines of this read are already queued, so the backlog can exceed the limits by one buffer at most
+        if ((conn.pendingCommands.get() >= MAX_PENDING_COMMANDS) || (conn.outboundBytes.get() >= MAX_OUTBOUND_BYTES)) {
+            conn.readPaused = true;
+            conn.key.interestOps(conn.key.interestOps() & ~SelectionKey.OP_READ);
+        }
+
+        if (queued && conn.scheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(conn::drain);
+            } catch (RejectedExecutionException e) {
+                close(conn);
+            }
+        }
+    }
+
+    /**
+     * Method that writes the pending responses of a connection until the channel can't accept more data
+     */
+    private void write(Connection conn) throws IOException {
+        ByteBuffer buffer;
+        while ((buffer = conn.outbound.peek()) != null) {
+            conn.outboundBytes.addAndGet(-conn.channel.write(buffer));
+            if (buffer.hasRemaining()) {
+                resumeReading(conn);
+                return;
+            }
+            conn.outbound.poll();
+        }
+        conn.key.interestOps(conn.key.interestOps() & ~SelectionKey.OP_WRITE);
+        resumeReading(conn);
+        closeIfDone(conn);
+    }
+
+    /**
+     * Method that reads again from a paused connection once its backlog is below the low-water marks. Every task of the
+     * executor asks for a write when it ends, so it's checked after executing commands as well as after writing
+     */
+    private void resumeReading(Connection conn) {
+        if (conn.readPaused && (conn.pendingCommands.get() <= LOW_PENDING_COMMANDS)
+                && (conn.outboundBytes.get() <= LOW_OUTBOUND_BYTES)) {
+            conn.readPaused = false;
+            conn.key.interestOps(conn.key.interestOps() | SelectionKey.OP_READ);
+        }
+    }
+
+    /**
+     * Method that closes a connection whose client has closed its side once all its responses are written
+     */
+    private void closeIfDone(Connection conn) {
+        // scheduled has to be read first: once it's false, all the responses of the worker are in the outbound queue
+        if (conn.inputClosed && !conn.scheduled.get() && conn.pending.isEmpty() && conn.outbound.isEmpty()) {
+            close(conn);
+        }
+    }
+
+    /**
+     * Method that closes a connection
+     */
+    private void close(Connection conn) {
+        if (conn.key.isValid()) {
+            connections.decrementAndGet();
+        }
+        conn.key.cancel();
+        try {
+            conn.channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Method that asks the selector thread to write the new responses of a connection
+     */
+    private void requestWrite(Connection conn) {
+        writeRequests.offer(conn);
+        selector.wakeup();
+    }
+
+    /**
+     * Method that returns the number of open connections
+     *
+     * @return The number of open connections
+     */
+    public int getConnectionCount() {
+        return connections.get();
+    }
+
+    /**
+     * Method that stops the server. The selector thread closes all the connections before ending
+     */
+    public void stop() {
+        stopped = true;
+        selector.wakeup();
+    }
+
+    /**
+     * State of a connection with a client
+     */
+    private class Connection {
+
+        private final SocketChannel channel;
+        private final SelectionKey key;
+
+        /**
+         * Bytes of the line being read. Only used by the selector thread
+         */
+        private byte[] line = new byte[128];
+        private int lineLength;
+        private boolean inputClosed;
+
+        /**
+         * True while the server doesn't read from this connection because of its backlog. Only used by the selector
+         * thread
+         */
+        private boolean readPaused;
+
+        /**
+         * Commands waiting to be executed, in arrival order
+         */
+        private final ConcurrentLinkedQueue<String> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingCommands = new AtomicInteger();
+
+        /**
+         * Responses waiting to be written, in the same order as the commands
+         */
+        private final ConcurrentLinkedQueue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>();
+        private final AtomicLong outboundBytes = new AtomicLong();
+
+        /**
+         * True while a task of the executor is processing the commands of this connection
+         */
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private Connection(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+
+        /**
+         * Method executed by the executor. It processes the pending commands in order, so at most one thread works on
+         * a connection at any time
+         */
+        private void drain() {
+            do {
+                String line;
+                while ((line = pending.poll()) != null) {
+                    pendingCommands.decrementAndGet();
+                    String ret;
+                    try {
+                        ret = RequestTask.process(line);
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                        ret = "ERROR;Bad Command";
+                    }
+                    byte[] response = (ret + "\n").getBytes(StandardCharsets.UTF_8);
+                    outboundBytes.addAndGet(response.length);
+                    outbound.offer(ByteBuffer.wrap(response));
+                }
+                scheduled.set(false);
+            } while (!pending.isEmpty() && scheduled.compareAndSet(false, true));
+            requestWrite(this);
+        }
+    }
+
+}
@@ -0,0 +1,113 @@
+package mjw.java.concurrency.server;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executor of the concurrent server. It's a ThreadPoolExecutor that records in the metrics of the server the time each
+ * task waits in the queue and the time a thread spends executing it. It can also reject new tasks when too many tasks
+ * are waiting, which is used by the adaptive controller to protect the latency of the server when the pool can't grow
+ * more
+ *
+ * @author author
+ */
+public class ServerExecutor extends ThreadPoolExecutor {
+
+    /**
+     * Metrics of the server
+     */
+    private final ServerMetrics metrics;
+
+    /**
+     * Maximum number of tasks waiting in the queue. New tasks are rejected when it's reached
+     */
+    private volatile int admissionLimit = Integer.MAX_VALUE;
+
+    /**
+     * Constructor of the class
+     *
+     * @param poolSize Initial number of threads of the pool
+     * @param metrics  Metrics of the server
+     */
+    public ServerExecutor(int poolSize, ServerMetrics metrics) {
+        super(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (getQueue().size() >= admissionLimit) {
+            metrics.recordRejected();
+            throw new RejectedExecutionException("Server overloaded");
+        }
+        try {
+            super.execute(new TimedTask(command));
+        } catch (RejectedExecutionException e) {
+            metrics.recordRejected();
+            throw e;
+        }
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        super.beforeExecute(t, r);
+        if (r instanceof TimedTask task) {
+            task.startTime = System.nanoTime();
+            metrics.recordQueueWait(task.startTime - task.submitTime);
+        }
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        super.afterExecute(r, t);
+        if (r instanceof TimedTask task) {
+            metrics.recordTaskService(System.nanoTime() - task.startTime);
+        }
+    }
+
+    /**
+     * Method that changes the number of threads of the pool
+     *
+     * @param poolSize New number of threads
+     */
+    public void resize(int poolSize) {
+        if (poolSize > getMaximumPoolSize()) {
+            setMaximumPoolSize(poolSize);
+            setCorePoolSize(poolSize);
+        } else {
+            setCorePoolSize(poolSize);
+            setMaximumPoolSize(poolSize);
+        }
+    }
+
+    public int getAdmissionLimit() {
+        return admissionLimit;
+    }
+
+    public void setAdmissionLimit(int admissionLimit) {
+        this.admissionLimit = admissionLimit;
+    }
+
+    /**
+     * Task with the time it was submitted to the executor and the time it started
+     */
+    private static class TimedTask implements Runnable {
+
+        private final Runnable task;
+        private final long submitTime;
+        private long startTime;
+
+        private TimedTask(Runnable task) {
+            this.task = task;
+            submitTime = System.nanoTime();
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+    }
+
+}
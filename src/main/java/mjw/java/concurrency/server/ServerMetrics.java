@@ -0,0 +1,154 @@
+package mjw.java.concurrency.server;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Class that stores the metrics of the concurrent server: the time the tasks wait in the queue of the executor, the
+ * time the executor spends in each task, the time to execute each type of command and the number of tasks and
+ * commands processed
+ *
+ * @author author
+ */
+public class ServerMetrics {
+
+    /**
+     * Types of commands with their own histogram. The rest are recorded as "other"
+     */
+    private static final String TYPES = "qrsz";
+    private static final String[] TYPE_NAMES = {"Query", "Report", "Status", "Stop", "Other"};
+
+    private final long startTime = System.nanoTime();
+
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram recentQueueWait = new LatencyHistogram();
+    private final LatencyHistogram taskService = new LatencyHistogram();
+    private final LatencyHistogram[] commandService = new LatencyHistogram[TYPE_NAMES.length];
+
+    private final LongAdder completedTasks = new LongAdder();
+    private final LongAdder rejectedTasks = new LongAdder();
+
+    /**
+     * Constructor of the class
+     */
+    public ServerMetrics() {
+        for (int i = 0; i < commandService.length; i++) {
+            commandService[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Method that records the time a task has waited in the queue of the executor
+     *
+     * @param nanos Time in nanoseconds
+     */
+    public void recordQueueWait(long nanos) {
+        queueWait.record(nanos);
+        recentQueueWait.record(nanos);
+    }
+
+    /**
+     * Method that records the time a thread of the executor has spent in a task
+     *
+     * @param nanos Time in nanoseconds
+     */
+    public void recordTaskService(long nanos) {
+        taskService.record(nanos);
+        completedTasks.increment();
+    }
+
+    /**
+     * Method that records the time to execute a command
+     *
+     * @param line  Command line
+     * @param nanos Time in nanoseconds
+     */
+    public void recordCommand(String line, long nanos) {
+        int type = line.isEmpty() ? -1 : TYPES.indexOf(line.charAt(0));
+        if ((type < 0) || ((line.length() > 1) && (line.charAt(1) != ';'))) {
+            type = TYPE_NAMES.length - 1;
+        }
+        commandService[type].record(nanos);
+    }
+
+    public void recordRejected() {
+        rejectedTasks.increment();
+    }
+
+    public LatencyHistogram getQueueWait() {
+        return queueWait;
+    }
+
+    /**
+     * Method that returns the histogram of the queue wait since the last time it was reset. It's used by the adaptive
+     * controller of the pool
+     *
+     * @return The histogram of the recent queue wait
+     */
+    public LatencyHistogram getRecentQueueWait() {
+        return recentQueueWait;
+    }
+
+    public LatencyHistogram getTaskService() {
+        return taskService;
+    }
+
+    public long getCompletedTasks() {
+        return completedTasks.sum();
+    }
+
+    public long getRejectedTasks() {
+        return rejectedTasks.sum();
+    }
+
+    /**
+     * Method that returns the mean throughput of the server since it started
+     *
+     * @return The number of completed tasks per second
+     */
+    public double getThroughput() {
+        double seconds = (System.nanoTime() - startTime) / (double) TimeUnit.SECONDS.toNanos(1);
+        return seconds == 0 ? 0.0 : completedTasks.sum() / seconds;
+    }
+
+    /**
+     * Method that writes the metrics in the format of the status command
+     *
+     * @param sb Builder where the metrics are written
+     */
+    public void appendStatus(StringBuilder sb) {
+        sb.append("Throughput: ");
+        sb.append(String.format("%.1f", getThroughput()));
+        sb.append(" tasks/s;");
+        sb.append("Rejected Tasks: ");
+        sb.append(getRejectedTasks());
+        sb.append(";");
+        appendHistogram(sb, "Queue Wait", queueWait);
+        appendHistogram(sb, "Task Service", taskService);
+        for (int i = 0; i < commandService.length; i++) {
+            if (commandService[i].getCount() > 0) {
+                appendHistogram(sb, TYPE_NAMES[i] + " Service", commandService[i]);
+            }
+        }
+    }
+
+    private static void appendHistogram(StringBuilder sb, String name, LatencyHistogram histogram) {
+        sb.append(name);
+        sb.append(": count ");
+        sb.append(histogram.getCount());
+        sb.append(" p50 ");
+        sb.append(micros(histogram.getValueAtPercentile(50)));
+        sb.append(" p99 ");
+        sb.append(micros(histogram.getValueAtPercentile(99)));
+        sb.append(" p999 ");
+        sb.append(micros(histogram.getValueAtPercentile(99.9)));
+        sb.append(" max ");
+        sb.append(micros(histogram.getMax()));
+        sb.append(" us;");
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+}
@@ -0,0 +1,73 @@
+package mjw.java.concurrency.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark that compares the ScheduledThreadPoolExecutor with the {@link TimingWheelScheduler}. Both have one thread
+ * that executes the tasks. In each round a number of one-shot tasks (by default 100,000, or the first argument) is
+ * scheduled with random delays of up to one second, half of them are cancelled, and the benchmark waits for the rest.
+ * It reports the cost of scheduling and cancelling and how late the tasks ran
+ *
+ * @author author
+ */
+public class TimerBenchmark {
+
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws InterruptedException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+
+        System.out.println("Round  Scheduler        schedule (ns)  cancel (ns)  late p50 (ms)  late p99 (ms)  late max (ms)");
+        for (int round = 0; round < ROUNDS; round++) {
+            ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(1);
+            pool.setRemoveOnCancelPolicy(true);
+            measure(round, "ScheduledPool", pool, count);
+            measure(round, "TimingWheel", new TimingWheelScheduler(null, 1, TimeUnit.MILLISECONDS, "timer"), count);
+        }
+    }
+
+    private static void measure(int round, String name, ScheduledExecutorService scheduler, int count)
+            throws InterruptedException {
+        LatencyHistogram lateness = new LatencyHistogram();
+        CountDownLatch latch = new CountDownLatch(count - count / 2);
+        List<ScheduledFuture<?>> cancelled = new ArrayList<>(count / 2);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            long delay = random.nextLong(TimeUnit.SECONDS.toNanos(1));
+            long target = System.nanoTime() + delay;
+            ScheduledFuture<?> future = scheduler.schedule(() -> {
+                lateness.record(System.nanoTime() - target);
+                latch.countDown();
+            }, delay, TimeUnit.NANOSECONDS);
+            if ((i & 1) == 1) {
+                cancelled.add(future);
+            }
+        }
+        long scheduled = System.nanoTime();
+        for (ScheduledFuture<?> future : cancelled) {
+            if (!future.cancel(false)) {
+                // It already ran
+                latch.countDown();
+            }
+        }
+        long end = System.nanoTime();
+        latch.await();
+        scheduler.shutdown();
+        scheduler.awaitTermination(1, TimeUnit.MINUTES);
+
+        System.out.printf("%5d  %-13s %16.0f %12.0f %14.1f %14.1f %14.1f%n", round, name,
+                (scheduled - start) / (double) count, (end - scheduled) / (double) cancelled.size(),
+                lateness.getValueAtPercentile(50) / 1e6, lateness.getValueAtPercentile(99) / 1e6,
+                lateness.getMax() / 1e6);
+    }
+
+}
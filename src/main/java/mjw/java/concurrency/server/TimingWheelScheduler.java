@@ -0,0 +1,541 @@
+package mjw.java.concurrency.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableScheduledFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Class that implements a ScheduledExecutorService with a hierarchical timing wheel, so thousands of delayed and
+ * periodic tasks share one timer thread instead of having a sleeping thread each:
+ * <ul>
+ *     <li>Time is divided in ticks. The wheel has four levels of 512 buckets: the first one holds the tasks of the next
+ *     512 ticks, and every bucket of the next level spans a whole turn of the previous one. When a turn ends, the
+ *     tasks of the next bucket of the upper level are moved down. Scheduling and cancelling are O(1): other threads
+ *     only add the task to a lock-free queue, and cancelled tasks are dropped when the timer reaches them</li>
+ *     <li>All the tasks that expire in the same tick are fired in one wake-up of the timer, so the timers are
+ *     coalesced to the tick. A task never runs before its delay, and runs at most one tick later</li>
+ *     <li>Expired tasks are executed by a delegate executor, so a slow task doesn't delay the others. Without
+ *     delegate they run in the timer thread, which only suits very short tasks</li>
+ *     <li>Periodic tasks accept a jitter: every execution is delayed a random time up to it, so many instances of the
+ *     same task don't fire at the same time</li>
+ *     <li>{@link #scheduleRateLimited} executes tasks at the rate of a {@link TokenBucket}, delaying them in the wheel
+ *     instead of blocking a thread</li>
+ * </ul>
+ * As in ScheduledThreadPoolExecutor, after shutdown the pending delayed tasks are still executed and the periodic
+ * tasks are cancelled
+ *
+ * @author author
+ */
+public class TimingWheelScheduler extends AbstractExecutorService implements ScheduledExecutorService {
+
+    private static final int WHEEL_BITS = 9;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+
+    /**
+     * Ticks covered by the whole wheel. Tasks further away are put in the last bucket and placed again when it expires
+     */
+    private static final long SPAN = 1L << (WHEEL_BITS * LEVELS);
+
+    /**
+     * Shared scheduler of the server, with a tick of 10 milliseconds and the common pool as delegate
+     */
+    private static final class Shared {
+        private static final TimingWheelScheduler INSTANCE = new TimingWheelScheduler(ForkJoinPool.commonPool(), 10,
+                TimeUnit.MILLISECONDS, "shared-timer");
+    }
+
+    private final Executor delegate;
+    private final long tickNanos;
+    private final long startTime;
+    private final Thread thread;
+
+    /**
+     * Tasks scheduled by other threads, waiting to be put in the wheel by the timer thread
+     */
+    private final ConcurrentLinkedQueue<TimerTask<?>> inbox = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Buckets of the wheel as linked lists of tasks. Only used by the timer thread
+     */
+    private final TimerTask<?>[][] heads = new TimerTask<?>[LEVELS][WHEEL_SIZE];
+    private final TimerTask<?>[][] tails = new TimerTask<?>[LEVELS][WHEEL_SIZE];
+    private long currentTick;
+    private int inWheel;
+
+    /**
+     * Tasks that haven't finished yet, counting every periodic task once
+     */
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /**
+     * True when the timer thread is parked until a new task arrives
+     */
+    private volatile boolean idle;
+    private volatile boolean shutdown;
+    private volatile boolean stopped;
+    private final List<Runnable> notExecuted = new ArrayList<>();
+    private final CountDownLatch terminated = new CountDownLatch(1);
+
+    /**
+     * Constructor of the class
+     *
+     * @param delegate Executor of the expired tasks, or null to execute them in the timer thread
+     * @param tick     Duration of a tick
+     * @param unit     Unit of the tick
+     * @param name     Name of the timer thread, which is a daemon thread
+     */
+    public TimingWheelScheduler(Executor delegate, long tick, TimeUnit unit, String name) {
+        if (tick <= 0) {
+            throw new IllegalArgumentException("Invalid tick: " + tick);
+        }
+        this.delegate = delegate;
+        this.tickNanos = unit.toNanos(tick);
+        this.startTime = System.nanoTime();
+        this.thread = new Thread(this::runTimer, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Method that returns the scheduler shared by the periodic tasks of the server. It must not be shut down
+     *
+     * @return The shared scheduler
+     */
+    public static TimingWheelScheduler getShared() {
+        return Shared.INSTANCE;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        schedule(command, 0, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        return add(new TimerTask<Void>(command, null, triggerTime(delay, unit), 0, 0, false));
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+        return add(new TimerTask<>(callable, triggerTime(delay, unit)));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        return scheduleAtFixedRate(command, initialDelay, period, 0, unit);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+        return scheduleWithFixedDelay(command, initialDelay, delay, 0, unit);
+    }
+
+    /**
+     * Method that schedules a periodic task at a fixed rate. Every execution is delayed a random time between 0 and
+     * the jitter from its nominal time, without accumulating drift
+     *
+     * @param command      Task
+     * @param initialDelay Delay of the first execution
+     * @param period       Period between the nominal times of the executions
+     * @param jitter       Maximum random delay of each execution
+     * @param unit         Unit of the times
+     * @return The future of the task, which can be used to cancel it
+     */
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, long jitter,
+                                                  TimeUnit unit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Invalid period: " + period);
+        }
+        return add(new TimerTask<Void>(command, null, triggerTime(initialDelay, unit), unit.toNanos(period),
+                unit.toNanos(jitter), true));
+    }
+
+    /**
+     * Method that schedules a periodic task with a fixed delay between the end of an execution and the start of the
+     * next one, plus a random time between 0 and the jitter
+     *
+     * @param command      Task
+     * @param initialDelay Delay of the first execution
+     * @param delay        Delay between executions
+     * @param jitter       Maximum random delay added to each delay
+     * @param unit         Unit of the times
+     * @return The future of the task, which can be used to cancel it
+     */
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, long jitter,
+                                                     TimeUnit unit) {
+        if (delay <= 0) {
+            throw new IllegalArgumentException("Invalid delay: " + delay);
+        }
+        return add(new TimerTask<Void>(command, null, triggerTime(initialDelay, unit), unit.toNanos(delay),
+                unit.toNanos(jitter), false));
+    }
+
+    /**
+     * Method that executes a task when the bucket has a token for it. The token is reserved now and the task waits in
+     * the wheel, so tasks submitted in a burst are spread at the rate of the bucket without blocking any thread
+     *
+     * @param command Task
+     * @param bucket  Token bucket shared by the tasks to limit
+     * @return The future of the task
+     */
+    public ScheduledFuture<?> scheduleRateLimited(Runnable command, TokenBucket bucket) {
+        return schedule(command, bucket.reserve(1), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        LockSupport.unpark(thread);
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown = true;
+        stopped = true;
+        LockSupport.unpark(thread);
+        if (Thread.currentThread() != thread) {
+            try {
+                terminated.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (notExecuted) {
+            return new ArrayList<>(notExecuted);
+        }
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return terminated.getCount() == 0;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return terminated.await(timeout, unit);
+    }
+
+    /**
+     * Method that returns the number of scheduled tasks that haven't finished, counting once each periodic task
+     *
+     * @return The number of tasks
+     */
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    private long triggerTime(long delay, TimeUnit unit) {
+        return System.nanoTime() + unit.toNanos(Math.max(delay, 0));
+    }
+
+    private <V> TimerTask<V> add(TimerTask<V> task) {
+        if (shutdown) {
+            throw new RejectedExecutionException("Scheduler is shut down");
+        }
+        pending.incrementAndGet();
+        enqueue(task);
+        return task;
+    }
+
+    private void enqueue(TimerTask<?> task) {
+        inbox.add(task);
+        if (idle) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Main loop of the timer thread
+     */
+    private void runTimer() {
+        boolean swept = false;
+        try {
+            while (!stopped) {
+                if (shutdown && !swept) {
+                    // The periodic tasks are cancelled now, not when the timer reaches them
+                    sweepPeriodic();
+                    swept = true;
+                }
+                drainInbox();
+                long targetTick = (System.nanoTime() - startTime) / tickNanos;
+                if (inWheel == 0) {
+                    // Nothing to expire, jump to the current tick
+                    currentTick = Math.max(currentTick, targetTick);
+                }
+                while (currentTick < targetTick) {
+                    currentTick++;
+                    advance();
+                }
+                if (shutdown && (pending.get() == 0) && inbox.isEmpty()) {
+                    break;
+                }
+                if (inWheel == 0) {
+                    idle = true;
+                    if (inbox.isEmpty()) {
+                        if (shutdown) {
+                            // Waiting for the tasks running in the delegate
+                            LockSupport.parkNanos(this, tickNanos);
+                        } else {
+                            LockSupport.park(this);
+                        }
+                    }
+                    idle = false;
+                } else {
+                    LockSupport.parkNanos(this, startTime + (currentTick + 1) * tickNanos - System.nanoTime());
+                }
+            }
+        } finally {
+            if (stopped) {
+                collectNotExecuted();
+            }
+            terminated.countDown();
+        }
+    }
+
+    private void drainInbox() {
+        TimerTask<?> task;
+        while ((task = inbox.poll()) != null) {
+            if (task.isCancelled() || (shutdown && task.isPeriodic())) {
+                finished(task);
+            } else {
+                insert(task);
+            }
+        }
+    }
+
+    /**
+     * Method that puts a task in the bucket of its trigger time, or fires it if it has expired
+     */
+    private void insert(TimerTask<?> task) {
+        long deadline = Math.floorDiv(task.time - startTime + tickNanos - 1, tickNanos);
+        long delta = deadline - currentTick;
+        if (delta <= 0) {
+            fire(task);
+            return;
+        }
+        int level = 0;
+        while ((level < LEVELS - 1) && (delta >= 1L << (WHEEL_BITS * (level + 1)))) {
+            level++;
+        }
+        if (delta >= SPAN) {
+            deadline = currentTick + SPAN - 1;
+        }
+        int bucket = (int) ((deadline >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+        task.next = null;
+        if (heads[level][bucket] == null) {
+            heads[level][bucket] = task;
+        } else {
+            tails[level][bucket].next = task;
+        }
+        tails[level][bucket] = task;
+        inWheel++;
+    }
+
+    /**
+     * Method that processes a new tick: the buckets of the upper levels that start now are moved down, and the tasks
+     * of the bucket of the first level are fired
+     */
+    private void advance() {
+        for (int level = LEVELS - 1; level > 0; level--) {
+            if ((currentTick & ((1L << (WHEEL_BITS * level)) - 1)) == 0) {
+                reinsert(level, (int) ((currentTick >>> (WHEEL_BITS * level)) & WHEEL_MASK));
+            }
+        }
+        reinsert(0, (int) (currentTick & WHEEL_MASK));
+    }
+
+    private void reinsert(int level, int bucket) {
+        TimerTask<?> task = heads[level][bucket];
+        heads[level][bucket] = null;
+        tails[level][bucket] = null;
+        while (task != null) {
+            TimerTask<?> next = task.next;
+            task.next = null;
+            inWheel--;
+            if (task.isCancelled() || (shutdown && task.isPeriodic())) {
+                finished(task);
+            } else {
+                insert(task);
+            }
+            task = next;
+        }
+    }
+
+    private void fire(TimerTask<?> task) {
+        if (delegate == null) {
+            task.run();
+            return;
+        }
+        try {
+            delegate.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.cancel(false);
+            finished(task);
+        }
+    }
+
+    /**
+     * Method called once for every task when it won't be executed again
+     */
+    private void finished(TimerTask<?> task) {
+        if (shutdown && task.isPeriodic()) {
+            task.cancel(false);
+        }
+        pending.decrementAndGet();
+    }
+
+    /**
+     * Method that removes all the tasks from the wheel
+     */
+    private List<TimerTask<?>> removeAll() {
+        List<TimerTask<?>> tasks = new ArrayList<>();
+        for (int level = 0; level < LEVELS; level++) {
+            for (int bucket = 0; bucket < WHEEL_SIZE; bucket++) {
+                for (TimerTask<?> task = heads[level][bucket]; task != null; task = task.next) {
+                    tasks.add(task);
+                }
+                heads[level][bucket] = null;
+                tails[level][bucket] = null;
+            }
+        }
+        inWheel = 0;
+        return tasks;
+    }
+
+    private void sweepPeriodic() {
+        if (inWheel == 0) {
+            return;
+        }
+        for (TimerTask<?> task : removeAll()) {
+            if (task.isCancelled() || task.isPeriodic()) {
+                finished(task);
+            } else {
+                insert(task);
+            }
+        }
+    }
+
+    private void collectNotExecuted() {
+        List<TimerTask<?>> tasks = removeAll();
+        TimerTask<?> task;
+        while ((task = inbox.poll()) != null) {
+            tasks.add(task);
+        }
+        synchronized (notExecuted) {
+            for (TimerTask<?> t : tasks) {
+                if (!t.isCancelled()) {
+                    notExecuted.add(t);
+                }
+                pending.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Task of the wheel
+     */
+    private class TimerTask<V> extends FutureTask<V> implements RunnableScheduledFuture<V> {
+
+        /**
+         * Trigger time in System.nanoTime() units
+         */
+        private volatile long time;
+
+        /**
+         * Period in nanoseconds, 0 for a one-shot task
+         */
+        private final long period;
+        private final long jitter;
+        private final boolean fixedRate;
+
+        /**
+         * Nominal time of a fixed rate task, without the jitter
+         */
+        private long nominalTime;
+
+        /**
+         * Next task of the same bucket. Only used by the timer thread
+         */
+        private TimerTask<?> next;
+
+        private TimerTask(Runnable runnable, V result, long time, long period, long jitter, boolean fixedRate) {
+            super(runnable, result);
+            this.period = period;
+            this.jitter = jitter;
+            this.fixedRate = fixedRate;
+            this.nominalTime = time;
+            this.time = time + jitter();
+        }
+
+        private TimerTask(Callable<V> callable, long time) {
+            super(callable);
+            this.period = 0;
+            this.jitter = 0;
+            this.fixedRate = false;
+            this.time = time;
+        }
+
+        private long jitter() {
+            return (jitter > 0) ? ThreadLocalRandom.current().nextLong(jitter) : 0;
+        }
+
+        @Override
+        public boolean isPeriodic() {
+            return period > 0;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(time - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            if (other == this) {
+                return 0;
+            }
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+
+        @Override
+        public void run() {
+            if (!isPeriodic()) {
+                super.run();
+                pending.decrementAndGet();
+            } else if (runAndReset() && !shutdown) {
+                if (fixedRate) {
+                    nominalTime += period;
+                } else {
+                    nominalTime = System.nanoTime() + period;
+                }
+                time = nominalTime + jitter();
+                enqueue(this);
+            } else {
+                finished(this);
+            }
+        }
+    }
+
+}
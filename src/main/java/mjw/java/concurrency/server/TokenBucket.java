@@ -0,0 +1,94 @@
+package mjw.java.concurrency.server;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class that implements a token bucket rate limiter. Tokens are added at a fixed rate up to the capacity of the bucket,
+ * so short bursts of up to capacity operations are allowed while the average rate never exceeds the configured one.
+ * Besides the non-blocking {@link #tryAcquire(int)}, tokens can be reserved in advance: the bucket goes into debt and
+ * the caller gets the time it has to wait, which {@link TimingWheelScheduler#scheduleRateLimited} uses to delay the
+ * task on the timer instead of blocking a thread
+ *
+ * @author author
+ */
+public class TokenBucket {
+
+    private final double tokensPerNano;
+    private final double capacity;
+
+    /**
+     * Available tokens. Negative when tokens have been reserved in advance
+     */
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * Constructor of the class. The bucket starts full
+     *
+     * @param permitsPerSecond Rate at which tokens are added
+     * @param capacity         Maximum number of tokens stored, that is, the maximum burst
+     */
+    public TokenBucket(double permitsPerSecond, int capacity) {
+        if ((permitsPerSecond <= 0) || (capacity <= 0)) {
+            throw new IllegalArgumentException("Invalid rate or capacity: " + permitsPerSecond + ", " + capacity);
+        }
+        this.tokensPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.capacity = capacity;
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Method that takes one token if it's available
+     *
+     * @return True if the token was taken
+     */
+    public boolean tryAcquire() {
+        return tryAcquire(1);
+    }
+
+    /**
+     * Method that takes some tokens if they are available. It never blocks
+     *
+     * @param permits Number of tokens
+     * @return True if the tokens were taken
+     */
+    public synchronized boolean tryAcquire(int permits) {
+        refill();
+        if (tokens >= permits) {
+            tokens -= permits;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Method that takes some tokens now, even if they aren't available yet, and returns how long the caller has to wait
+     * before using them. The following callers wait for the debt to be paid, so the rate is respected
+     *
+     * @param permits Number of tokens
+     * @return Nanoseconds to wait, 0 if the tokens were available
+     */
+    public synchronized long reserve(int permits) {
+        refill();
+        tokens -= permits;
+        return (tokens >= 0) ? 0 : (long) Math.ceil(-tokens / tokensPerNano);
+    }
+
+    /**
+     * Method that returns the number of tokens available now
+     *
+     * @return The number of tokens, negative if there is debt
+     */
+    public synchronized double getAvailable() {
+        refill();
+        return tokens;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+    }
+
+}
@@ -13,13 +13,13 @@ public class WDI {
     private String countryCode;
     private String indicatorName;
     private String indicatorCode;
-    private Double values[];
+    private double[] values;
 
     public void setData(String[] data) throws Exception {
         if (data.length != 59) {
             throw new Exception("Data length is not correct: " + data.length);
         }
-        values = new Double[55];
+        values = new double[55];
         countryName = getString(data[0]);
         countryCode = getString(data[1]);
         indicatorName = getString(data[2]);
@@ -88,11 +88,11 @@ public class WDI {
         return string;
     }
 
-    private Double getValue(String string) {
+    private double getValue(String string) {
         if (string.trim().length() == 0) {
             return 0.0d;
         }
-        return Double.valueOf(string);
+        return Double.parseDouble(string);
     }
 
     public String getCountryName() {
@@ -127,7 +127,7 @@ public class WDI {
         this.indicatorCode = indicatorCode;
     }
 
-    public Double getValue(short year) throws Exception {
+    public double getValue(short year) throws Exception {
         if ((year < FIRST_YEAR) || (year >= FIRST_YEAR + values.length)) {
             throw new Exception("No data for that year");
         }
@@ -136,8 +136,12 @@ public class WDI {
         return values[index];
     }
 
-    public Double[] getValues() {
+    public double[] getValues() {
         return values;
     }
 
+    public void setValues(double[] values) {
+        this.values = values;
+    }
+
 }
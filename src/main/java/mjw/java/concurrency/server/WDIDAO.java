@@ -13,15 +13,25 @@ public class WDIDAO {
 
     private static WDIDAO dao;
     private List<WDI> data;
+    private WDIStore store;
 
     /**
-     * Constructor of the class
+     * Constructor of the class. It uses the binary snapshot of the file when it's up to date
      *
      * @param route Path to the file where the data is stored
      */
     private WDIDAO(String route) {
-        WDILoader loader = new WDILoader();
-        data = loader.load(route);
+        this(WDISnapshot.loadOrCreate(route));
+    }
+
+    /**
+     * Constructor of the class
+     *
+     * @param data Data already loaded into memory
+     */
+    WDIDAO(List<WDI> data) {
+        this.data = data;
+        store = new WDIStore(data);
     }
 
     /**
@@ -45,12 +55,9 @@ public class WDIDAO {
      */
     public String query(String codCountry, String codIndicator) {
 
-        WDI wdi = null;
-        for (int i = 0; i < data.size(); i++) {
-            wdi = data.get(i);
-            if ((wdi.getCountryCode().equals(codCountry)) && (wdi.getIndicatorCode().equals(codIndicator))) {
-                break;
-            }
+        WDI wdi = store.get(codCountry, codIndicator);
+        if (wdi == null) {
+            return "ERROR;Bad Command";
         }
 
         StringWriter writer = new StringWriter();
@@ -58,9 +65,9 @@ public class WDIDAO {
         writer.write(";");
         writer.write(codIndicator);
         writer.write(";");
-        Double[] years = wdi.getValues();
+        double[] years = wdi.getValues();
         for (int i = 0; i < years.length; i++) {
-            writer.write(years[i].toString());
+            writer.write(String.valueOf(years[i]));
             if (i < years.length - 1) {
                 writer.write(";");
             }
@@ -80,12 +87,9 @@ public class WDIDAO {
     public String query(String codCountry, String codIndicator, short year) throws Exception {
 
         System.err.println("Query: " + codCountry + ", " + codIndicator);
-        WDI wdi = null;
-        for (int i = 0; i < data.size(); i++) {
-            wdi = data.get(i);
-            if ((wdi.getCountryCode().equals(codCountry)) && (wdi.getIndicatorCode().equals(codIndicator))) {
-                break;
-            }
+        WDI wdi = store.get(codCountry, codIndicator);
+        if (wdi == null) {
+            throw new Exception("No data for that country and indicator");
         }
 
         StringWriter writer = new StringWriter();
@@ -95,43 +99,26 @@ public class WDIDAO {
         writer.write(";");
         writer.write("" + year);
         writer.write(";");
-        writer.write(wdi.getValue(year).toString());
+        writer.write(String.valueOf(wdi.getValue(year)));
         return writer.toString();
     }
 
     /**
-     * Method that makes a report of data
+     * Method that makes a report of data. The aggregates of the indicator are computed the first time and reused
      *
      * @param codIndicator Indicator
      * @return The medium value of that indicator per country
      */
     public String report(String codIndicator) {
-
-        StringWriter writer = new StringWriter();
-        writer.write(codIndicator);
-        writer.write(";");
-        for (int i = 0; i < data.size(); i++) {
-            WDI wdi = data.get(i);
-            if (wdi.getIndicatorCode().equals(codIndicator)) {
-                Double[] years = wdi.getValues();
-                double mean = 0.0;
-                for (int j = 0; j < years.length; j++) {
-                    mean += years[j];
-                }
-                mean /= years.length;
-                writer.write(wdi.getCountryCode());
-                writer.write(";");
-                writer.write("" + mean);
-                writer.write(";");
-            }
-        }
-
-        return writer.toString();
-
+        return store.getReport(codIndicator).getResponse();
     }
 
     public List<WDI> getData() {
         return data;
     }
 
+    public WDIStore getStore() {
+        return store;
+    }
+
 }
@@ -0,0 +1,137 @@
+package mjw.java.concurrency.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark that compares the linear scan over the list of WDI rows with the indexed store used by the DAO. If a path
+ * is passed as first argument the data is loaded from that file, otherwise a synthetic data set is generated
+ *
+ * @author author
+ */
+public class WDIDAOBenchmark {
+
+    private static final int COUNTRIES = 250;
+    private static final int INDICATORS = 400;
+    private static final int REQUESTS = 2_000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        List<WDI> data = args.length > 0 ? new WDILoader().load(args[0]) : generate(COUNTRIES, INDICATORS);
+        System.out.println("Rows: " + data.size());
+
+        long start = System.nanoTime();
+        WDIDAO dao = new WDIDAO(data);
+        System.out.printf("Index build: %.2f ms%n", (System.nanoTime() - start) / 1_000_000.0);
+
+        Random random = new Random(42);
+        WDI[] targets = new WDI[REQUESTS];
+        for (int i = 0; i < REQUESTS; i++) {
+            targets[i] = data.get(random.nextInt(data.size()));
+        }
+
+        System.out.println("Round        Scan query   Index query   Scan report  Index report");
+        for (int round = 0; round < ROUNDS; round++) {
+            long checksum = 0;
+
+            start = System.nanoTime();
+            for (WDI target : targets) {
+                checksum += scanQuery(data, target.getCountryCode(), target.getIndicatorCode()).length();
+            }
+            double scanQuery = (System.nanoTime() - start) / 1_000_000.0;
+
+            start = System.nanoTime();
+            for (WDI target : targets) {
+                checksum += dao.query(target.getCountryCode(), target.getIndicatorCode()).length();
+            }
+            double indexQuery = (System.nanoTime() - start) / 1_000_000.0;
+
+            // Reports are far more expensive, so we only do a tenth of them
+            start = System.nanoTime();
+            for (int i = 0; i < REQUESTS / 10; i++) {
+                checksum += scanReport(data, targets[i].getIndicatorCode()).length();
+            }
+            double scanReport = (System.nanoTime() - start) / 1_000_000.0;
+
+            start = System.nanoTime();
+            for (int i = 0; i < REQUESTS / 10; i++) {
+                checksum += dao.report(targets[i].getIndicatorCode()).length();
+            }
+            double indexReport = (System.nanoTime() - start) / 1_000_000.0;
+
+            System.out.printf("%5d %14.2f %13.2f %13.2f %13.2f   (checksum %d)%n", round, scanQuery, indexQuery,
+                    scanReport, indexReport, checksum);
+        }
+    }
+
+    /**
+     * Query implemented with the original linear scan
+     */
+    private static String scanQuery(List<WDI> data, String codCountry, String codIndicator) {
+        WDI wdi = null;
+        for (int i = 0; i < data.size(); i++) {
+            wdi = data.get(i);
+            if ((wdi.getCountryCode().equals(codCountry)) && (wdi.getIndicatorCode().equals(codIndicator))) {
+                break;
+            }
+        }
+
+        StringBuilder builder = new StringBuilder();
+        builder.append(codCountry).append(";").append(codIndicator).append(";");
+        double[] years = wdi.getValues();
+        for (int i = 0; i < years.length; i++) {
+            builder.append(years[i]);
+            if (i < years.length - 1) {
+                builder.append(";");
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Report implemented with the original linear scan
+     */
+    private static String scanReport(List<WDI> data, String codIndicator) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(codIndicator).append(";");
+        for (int i = 0; i < data.size(); i++) {
+            WDI wdi = data.get(i);
+            if (wdi.getIndicatorCode().equals(codIndicator)) {
+                double[] years = wdi.getValues();
+                double mean = 0.0;
+                for (int j = 0; j < years.length; j++) {
+                    mean += years[j];
+                }
+                mean /= years.length;
+                builder.append(wdi.getCountryCode()).append(";").append(mean).append(";");
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Generates a synthetic data set with the same shape as the WDI file
+     */
+    static List<WDI> generate(int countries, int indicators) {
+        Random random = new Random(7);
+        List<WDI> data = new ArrayList<>(countries * indicators);
+        for (int c = 0; c < countries; c++) {
+            for (int i = 0; i < indicators; i++) {
+                WDI wdi = new WDI();
+                wdi.setCountryName("Country " + c);
+                wdi.setCountryCode("C" + c);
+                wdi.setIndicatorName("Indicator " + i);
+                wdi.setIndicatorCode("IND." + i);
+                double[] values = new double[55];
+                for (int y = 0; y < values.length; y++) {
+                    values[y] = random.nextDouble() * 1000;
+                }
+                wdi.setValues(values);
+                data.add(wdi);
+            }
+        }
+        return data;
+    }
+
+}
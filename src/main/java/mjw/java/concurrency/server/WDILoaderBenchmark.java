@@ -0,0 +1,51 @@
+package mjw.java.concurrency.server;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Benchmark that compares the load time and the peak heap of the sequential loader and the parallel loader of the WDI
+ * file. The path of the file can be passed as first argument, by default it's the file of the server
+ *
+ * @author author
+ */
+public class WDILoaderBenchmark {
+
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) {
+        String route = args.length > 0 ? args[0] : Constants.DATA_ROUTE;
+        WDILoader loader = new WDILoader();
+
+        System.out.println("Round  Loader       Rows   Time (ms)  Peak heap (MB)");
+        for (int round = 0; round < ROUNDS; round++) {
+            measure(round, "serial", route, loader::load);
+            measure(round, "parallel", route, loader::loadParallel);
+        }
+    }
+
+    private static void measure(int round, String name, String route, Function<String, List<WDI>> load) {
+        System.gc();
+        List<MemoryPoolMXBean> pools = ManagementFactory.getMemoryPoolMXBeans();
+        for (MemoryPoolMXBean pool : pools) {
+            pool.resetPeakUsage();
+        }
+
+        long start = System.nanoTime();
+        List<WDI> data = load.apply(route);
+        double millis = (System.nanoTime() - start) / 1_000_000.0;
+
+        long peak = 0;
+        for (MemoryPoolMXBean pool : pools) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        System.out.printf("%5d  %-8s %8d %11.1f %15.1f%n", round, name, data.size(), millis,
+                peak / (1024.0 * 1024.0));
+    }
+
+}
@@ -0,0 +1,101 @@
+package mjw.java.concurrency.server;
+
+import java.util.List;
+
+/**
+ * Class that stores the aggregates of an indicator for all the countries: the mean, the minimum and the maximum of its
+ * values and the number of values. It also keeps the response of the report command, so it's built only once
+ *
+ * @author author
+ */
+public class WDIReport {
+
+    private final String indicatorCode;
+    private final String[] countryCodes;
+    private final double[] mean;
+    private final double[] min;
+    private final double[] max;
+    private final int[] count;
+
+    /**
+     * Response of the report command for this indicator
+     */
+    private final String response;
+
+    /**
+     * Constructor of the class
+     *
+     * @param indicatorCode Code of the indicator
+     * @param rows          Rows of the indicator, in load order
+     */
+    public WDIReport(String indicatorCode, List<WDI> rows) {
+        this.indicatorCode = indicatorCode;
+        int size = rows.size();
+        countryCodes = new String[size];
+        mean = new double[size];
+        min = new double[size];
+        max = new double[size];
+        count = new int[size];
+
+        StringBuilder builder = new StringBuilder(indicatorCode.length() + 1 + size * 24);
+        builder.append(indicatorCode).append(";");
+        for (int i = 0; i < size; i++) {
+            WDI wdi = rows.get(i);
+            double[] years = wdi.getValues();
+            double sum = 0.0;
+            double minimum = Double.POSITIVE_INFINITY;
+            double maximum = Double.NEGATIVE_INFINITY;
+            for (double value : years) {
+                sum += value;
+                minimum = Math.min(minimum, value);
+                maximum = Math.max(maximum, value);
+            }
+            countryCodes[i] = wdi.getCountryCode();
+            mean[i] = sum / years.length;
+            min[i] = minimum;
+            max[i] = maximum;
+            count[i] = years.length;
+            builder.append(countryCodes[i]).append(";").append(mean[i]).append(";");
+        }
+        response = builder.toString();
+    }
+
+    public String getIndicatorCode() {
+        return indicatorCode;
+    }
+
+    public int getCountryCount() {
+        return countryCodes.length;
+    }
+
+    public String getCountryCode(int index) {
+        return countryCodes[index];
+    }
+
+    public double getMean(int index) {
+        return mean[index];
+    }
+
+    public double getMin(int index) {
+        return min[index];
+    }
+
+    public double getMax(int index) {
+        return max[index];
+    }
+
+    public int getCount(int index) {
+        return count[index];
+    }
+
+    /**
+     * Method that returns the response of the report command: the code of the indicator followed by the code of each
+     * country and the mean of its values
+     *
+     * @return The response of the report
+     */
+    public String getResponse() {
+        return response;
+    }
+
+}
@@ -0,0 +1,226 @@
+package mjw.java.concurrency.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class that stores the loaded WDI data in a compact binary file, so the server can start without parsing the CSV file
+ * again. The format of the file is:
+ * <ul>
+ *     <li>Header: magic number, version, size and modification time of the CSV file it was created from, number of
+ *     rows and number of values per row</li>
+ *     <li>Dictionary with all the different names and codes, each one as its length and its UTF-8 bytes</li>
+ *     <li>Four indexes in the dictionary per row: country name, country code, indicator name and indicator code</li>
+ *     <li>The values of all the rows, packed as doubles</li>
+ * </ul>
+ * The snapshot is stale when the size or the modification time of the CSV file change
+ *
+ * @author author
+ */
+public class WDISnapshot {
+
+    private static final int MAGIC = 0x57444931;
+    private static final int VERSION = 1;
+    private static final int VALUES = 55;
+
+    /**
+     * Method that returns the data of the CSV file. It reads the snapshot of the file if it exists and it's not stale.
+     * Otherwise it parses the CSV file and writes the snapshot for the next time
+     *
+     * @param route Path to the CSV file
+     * @return The rows of the file
+     */
+    public static List<WDI> loadOrCreate(String route) {
+        Path csv = Paths.get(route);
+        Path snapshot = snapshotPath(csv);
+
+        try {
+            List<WDI> data = read(csv, snapshot);
+            if (data != null) {
+                return data;
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Can't read the snapshot " + snapshot + ": " + e);
+        }
+
+        List<WDI> data = new WDILoader().loadParallel(route);
+        if (!data.isEmpty()) {
+            try {
+                write(data, csv, snapshot);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Method that returns the path of the snapshot of a CSV file
+     *
+     * @param csv Path to the CSV file
+     * @return The path of the snapshot, in the same folder as the CSV file
+     */
+    public static Path snapshotPath(Path csv) {
+        return csv.resolveSibling(csv.getFileName() + ".snapshot");
+    }
+
+    /**
+     * Method that writes the snapshot of the data of a CSV file. It's written to a temporary file that replaces the
+     * old snapshot at the end, so a reader never sees a partial snapshot
+     *
+     * @param data     Rows loaded from the CSV file
+     * @param csv      Path to the CSV file
+     * @param snapshot Path to the snapshot
+     * @throws IOException If the snapshot can't be written
+     */
+    public static void write(List<WDI> data, Path csv, Path snapshot) throws IOException {
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        int[] indexes = new int[data.size() * 4];
+        int n = 0;
+        for (WDI wdi : data) {
+            indexes[n++] = index(wdi.getCountryName(), dictionary, strings);
+            indexes[n++] = index(wdi.getCountryCode(), dictionary, strings);
+            indexes[n++] = index(wdi.getIndicatorName(), dictionary, strings);
+            indexes[n++] = index(wdi.getIndicatorCode(), dictionary, strings);
+        }
+
+        Path tmp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putLong(Files.size(csv));
+            buffer.putLong(Files.getLastModifiedTime(csv).toMillis());
+            buffer.putInt(data.size());
+            buffer.putInt(VALUES);
+
+            buffer.putInt(strings.size());
+            for (byte[] string : strings) {
+                ensure(channel, buffer, Integer.BYTES + string.length);
+                buffer.putInt(string.length);
+                buffer.put(string);
+            }
+            for (int index : indexes) {
+                ensure(channel, buffer, Integer.BYTES);
+                buffer.putInt(index);
+            }
+            for (WDI wdi : data) {
+                double[] values = wdi.getValues();
+                if (values.length != VALUES) {
+                    throw new IOException("Data length is not correct: " + values.length);
+                }
+                ensure(channel, buffer, VALUES * Double.BYTES);
+                buffer.asDoubleBuffer().put(values);
+                buffer.position(buffer.position() + VALUES * Double.BYTES);
+            }
+            flush(channel, buffer);
+            channel.force(false);
+        }
+        Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Method that reads the snapshot of a CSV file through a memory mapping
+     *
+     * @param csv      Path to the CSV file. If it doesn't exist, the snapshot is used anyway
+     * @param snapshot Path to the snapshot
+     * @return The rows of the snapshot, or null if the snapshot doesn't exist or it's stale
+     * @throws IOException If the snapshot can't be read
+     */
+    public static List<WDI> read(Path csv, Path snapshot) throws IOException {
+        if (!Files.exists(snapshot)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if ((buffer.getInt() != MAGIC) || (buffer.getInt() != VERSION)) {
+                return null;
+            }
+            long csvSize = buffer.getLong();
+            long csvModified = buffer.getLong();
+            if (Files.exists(csv) && ((Files.size(csv) != csvSize)
+                    || (Files.getLastModifiedTime(csv).toMillis() != csvModified))) {
+                return null;
+            }
+            int rows = buffer.getInt();
+            if (buffer.getInt() != VALUES) {
+                return null;
+            }
+
+            String[] strings = new String[buffer.getInt()];
+            byte[] bytes = new byte[256];
+            for (int i = 0; i < strings.length; i++) {
+                int length = buffer.getInt();
+                if (length > bytes.length) {
+                    bytes = new byte[length];
+                }
+                buffer.get(bytes, 0, length);
+                strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+            }
+
+            List<WDI> data = new ArrayList<>(rows);
+            for (int i = 0; i < rows; i++) {
+                WDI wdi = new WDI();
+                wdi.setCountryName(strings[buffer.getInt()]);
+                wdi.setCountryCode(strings[buffer.getInt()]);
+                wdi.setIndicatorName(strings[buffer.getInt()]);
+                wdi.setIndicatorCode(strings[buffer.getInt()]);
+                data.add(wdi);
+            }
+
+            DoubleBuffer values = buffer.asDoubleBuffer();
+            for (WDI wdi : data) {
+                double[] row = new double[VALUES];
+                values.get(row);
+                wdi.setValues(row);
+            }
+            return data;
+        }
+    }
+
+    private static int index(String string, Map<String, Integer> dictionary, List<byte[]> strings) {
+        Integer index = dictionary.get(string);
+        if (index == null) {
+            index = strings.size();
+            dictionary.put(string, index);
+            strings.add(string.getBytes(StandardCharsets.UTF_8));
+        }
+        return index;
+    }
+
+    /**
+     * Method that writes the buffer to the channel if it hasn't got space for the next bytes
+     */
+    private static void ensure(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush(channel, buffer);
+            if (buffer.remaining() < bytes) {
+                throw new IOException("Value too long for the snapshot: " + bytes + " bytes");
+            }
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+}
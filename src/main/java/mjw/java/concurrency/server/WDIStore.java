@@ -0,0 +1,119 @@
+package mjw.java.concurrency.server;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Class that indexes the data of the World Development Indicators so the DAO doesn't have to scan the whole data set on
+ * every request. It keeps a hash index by the pair (country, indicator) for the queries and an inverted index from the
+ * indicator to its rows for the reports. Both indexes are built once and are read-only after that, so they can be
+ * shared by all the threads of the server without synchronization. The aggregates of each indicator are computed the
+ * first time a report asks for them
+ *
+ * @author author
+ */
+public class WDIStore {
+
+    /**
+     * Key of the composite index
+     *
+     * @param countryCode   Code of the country
+     * @param indicatorCode Code of the indicator
+     */
+    private record Key(String countryCode, String indicatorCode) {
+    }
+
+    /**
+     * Rows of the data set in load order
+     */
+    private final List<WDI> data;
+
+    /**
+     * Index by the pair (country, indicator)
+     */
+    private final Map<Key, WDI> byCountryIndicator;
+
+    /**
+     * Inverted index from the indicator to its rows, in load order
+     */
+    private final Map<String, List<WDI>> byIndicator;
+
+    /**
+     * Aggregates of the indicators that have been reported
+     */
+    private final ConcurrentHashMap<String, WDIReport> reports = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor of the class
+     *
+     * @param data Rows to index
+     */
+    public WDIStore(List<WDI> data) {
+        this.data = data;
+        byCountryIndicator = new HashMap<>(data.size() * 4 / 3 + 1);
+        byIndicator = new HashMap<>();
+        for (WDI wdi : data) {
+            // The linear scan returned the first matching row, so we keep the first one too
+            byCountryIndicator.putIfAbsent(new Key(wdi.getCountryCode(), wdi.getIndicatorCode()), wdi);
+            byIndicator.computeIfAbsent(wdi.getIndicatorCode(), k -> new ArrayList<>()).add(wdi);
+        }
+    }
+
+    /**
+     * Method that returns the row of a country and an indicator
+     *
+     * @param codCountry   Code of the country
+     * @param codIndicator Code of the indicator
+     * @return The row or null if it doesn't exist
+     */
+    public WDI get(String codCountry, String codIndicator) {
+        return byCountryIndicator.get(new Key(codCountry, codIndicator));
+    }
+
+    /**
+     * Method that returns all the rows of an indicator
+     *
+     * @param codIndicator Code of the indicator
+     * @return The rows of that indicator in load order. An empty list if there isn't any
+     */
+    public List<WDI> getByIndicator(String codIndicator) {
+        return byIndicator.getOrDefault(codIndicator, Collections.emptyList());
+    }
+
+    /**
+     * Method that returns the aggregates of an indicator. They are computed only once per indicator
+     *
+     * @param codIndicator Code of the indicator
+     * @return The aggregates of the indicator. If the indicator doesn't exist, an empty report that isn't stored
+     */
+    public WDIReport getReport(String codIndicator) {
+        List<WDI> rows = byIndicator.get(codIndicator);
+        if (rows == null) {
+            return new WDIReport(codIndicator, Collections.emptyList());
+        }
+        return reports.computeIfAbsent(codIndicator, k -> new WDIReport(k, rows));
+    }
+
+    /**
+     * Method that returns the number of different indicators in the store
+     *
+     * @return The number of indicators
+     */
+    public int getIndicatorCount() {
+        return byIndicator.size();
+    }
+
+    /**
+     * Method that returns all the rows of the store
+     *
+     * @return The rows in load order
+     */
+    public List<WDI> getData() {
+        return data;
+    }
+
+}
@@ -49,6 +49,7 @@ module java.module {
     requires dflib.junit5;
     requires org.junit.jupiter.params;
     requires java.sql;
+    requires static jdk.incubator.vector;
     requires jcommander;
     requires org.checkerframework.checker.qual;
 